@@ -3,22 +3,31 @@ package proj.concert.webapp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import proj.concert.common.dto.BookingPageDTO;
 import proj.concert.common.dto.ConcertDTO;
-import proj.concert.common.dto.SeatDTO;
 import proj.concert.webapp.util.AuthUtil;
+import proj.concert.webapp.util.TtlCache;
 
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.core.GenericType;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class BookingServlet extends HttpServlet {
@@ -26,6 +35,26 @@ public class BookingServlet extends HttpServlet {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
     private static final Logger LOGGER = LoggerFactory.getLogger(BookingServlet.class);
 
+    // How long the web service call for a page may take (context parameter concert.client.pageDeadlineMillis,
+    // default 5000)
+    private long pageDeadlineMillis;
+
+    // The data for each performance's booking page, keyed by "concertId/date", cached for the TTL set by the context
+    // parameter concert.client.bookingPageTtlMillis (default 2000), then revalidated with the page's ETag
+    private TtlCache<String, BookingPageDTO> pageCache;
+
+    @Override
+    public void init() {
+        ServletContext context = getServletContext();
+        pageDeadlineMillis = WebServiceClientListener.getIntParameter(context, "concert.client.pageDeadlineMillis", 5000);
+
+        pageCache = new TtlCache<>("booking pages", TimeUnit.MILLISECONDS.toNanos(
+                WebServiceClientListener.getIntParameter(context, "concert.client.bookingPageTtlMillis", 2000)),
+                WebServiceClientListener.getIntParameter(context, "concert.client.cacheMaxEntries", 1000),
+                (key, etag) -> fetch("/performances/" + key + "/page", etag,
+                        response -> response.readEntity(BookingPageDTO.class)));
+    }
+
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
 
@@ -41,43 +70,87 @@ public class BookingServlet extends HttpServlet {
         long concertId = Long.parseLong(req.getParameter("concertId"));
         LocalDateTime date = LocalDateTime.parse(req.getParameter("date"), FORMATTER);
 
-        Client wsClient = ClientBuilder.newClient();
+        // Grab the concert, and the already-booked seats so we can mark them as such on the app, in one call. The
+        // page comes from the cache if it's fresh; otherwise it is fetched, or revalidated if we have a copy.
+        BookingPageDTO page;
         try {
-            // Grab the concert
-            ConcertDTO concert = wsClient.target(Config.WEB_SERVICE_URI + "/concerts/" + concertId)
-                    .request().get(ConcertDTO.class);
-
+            page = await(pageCache.get(concertId + "/" + FORMATTER.format(date)),
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pageDeadlineMillis));
+        } catch (TimeoutException e) {
+            // The fetch carries on, and is cached for the next request
+            LOGGER.warn("doGet(): Web service didn't respond within " + pageDeadlineMillis + "ms");
+            resp.sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+            return;
+        }
+        ConcertDTO concert = page.getConcert();
+        List<String> bookedSeats = page.getBookedSeats();
 
-            // If the date is invalid for that concert, get outta here.
-            if (!concert.getDates().contains(date)) {
-                LOGGER.warn("doGet(): Date invalid for concert - redirecting to /Concerts");
-                resp.sendRedirect("./Concerts?message=invalid_date");
-                return;
-            }
+        // If the date is invalid for that concert, get outta here.
+        if (!page.isValidDate()) {
+            LOGGER.warn("doGet(): Date invalid for concert - redirecting to /Concerts");
+            resp.sendRedirect("./Concerts?message=invalid_date");
+            return;
+        }
 
-            // Go get the already-booked seats from the web service, so we can mark them as such on the app.
-            List<SeatDTO> bookedSeats = wsClient.target(Config.WEB_SERVICE_URI + "/seats/" + FORMATTER.format(date) + "?status=Booked")
-                    .request().get(new GenericType<List<SeatDTO>>() {
-                    });
-            LOGGER.info("doGet(): bookedSeats size = " + bookedSeats.size());
+        LOGGER.info("doGet(): bookedSeats size = " + bookedSeats.size());
 
-//             TEST
-//            bookedSeats = Arrays.asList(new SeatDTO("A1", null), new SeatDTO("G11", null), new SeatDTO("G12", null));
+        List<String> bookedSeatLabels = bookedSeats.stream().map(label -> "\"" + label + "\"").collect(Collectors.toList());
+        String seatLabelString = String.join(", ", bookedSeatLabels);
+        LOGGER.info("doGet(): seatLabelString = " + seatLabelString);
 
-            List<String> bookedSeatLabels = bookedSeats.stream().map(seat -> "\"" + seat.getLabel() + "\"").collect(Collectors.toList());
-            String seatLabelString = String.join(", ", bookedSeatLabels);
-            LOGGER.info("doGet(): seatLabelString = " + seatLabelString);
+        // Add data to req attrs to be displayed in JSP
+        req.setAttribute("concert", concert);
+        req.setAttribute("concertDateString", FORMATTER.format(date));
+        req.setAttribute("bookedSeatLabels", seatLabelString);
 
-            // Add data to req attrs to be displayed in JSP
-            req.setAttribute("concert", concert);
-            req.setAttribute("concertDateString", FORMATTER.format(date));
-            req.setAttribute("bookedSeatLabels", seatLabelString);
+        // Go to JSP
+        req.getRequestDispatcher("/WEB-INF/jsp/booking.jsp").forward(req, resp);
+    }
 
-            // Go to JSP
-            req.getRequestDispatcher("/WEB-INF/jsp/booking.jsp").forward(req, resp);
+    /**
+     * Starts a GET of the given path on the web service, conditional on the given ETag if there is one.
+     * @param path the path, relative to Config.WEB_SERVICE_URI
+     * @param etag the ETag of the cached value, or null
+     * @param reader reads the value from a 200 response
+     * @return the value and its ETag, or Fetched.notModified() for a 304
+     */
+    private <V> CompletableFuture<TtlCache.Fetched<V>> fetch(String path, String etag, Function<Response, V> reader) {
+        Invocation.Builder request = WebServiceClientListener.getClient(getServletContext())
+                .target(Config.WEB_SERVICE_URI + path).request();
+        if (etag != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        return request.rx().get().toCompletableFuture().thenApply(response -> {
+            try {
+                if (response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+                    return TtlCache.Fetched.<V>notModified();
+                }
+                if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                    throw new WebApplicationException(response.getStatus());
+                }
+                return TtlCache.Fetched.of(reader.apply(response), response.getHeaderString(HttpHeaders.ETAG));
+            } finally {
+                // Returns the connection to the pool
+                response.close();
+            }
+        });
+    }
 
-        } finally {
-            wsClient.close();
+    /**
+     * Waits until the given deadline (from System.nanoTime()) for the result of a web service call. If the call failed,
+     * its exception is rethrown as it would have been by a synchronous call.
+     */
+    private static <T> T await(Future<T> future, long deadline) throws ServletException, TimeoutException {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ServletException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException(e);
         }
     }
 }
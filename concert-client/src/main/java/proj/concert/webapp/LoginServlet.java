@@ -11,7 +11,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.NewCookie;
 import javax.ws.rs.core.Response;
@@ -31,26 +30,34 @@ public class LoginServlet extends HttpServlet {
 
         UserDTO user = new UserDTO(username, password);
 
-        Client wsClient = ClientBuilder.newClient();
+        Client wsClient = WebServiceClientListener.getClient(getServletContext());
+        // Pass on the browser's address, so the service limits login attempts by it rather than by the webapp's
+        Response wsResponse = wsClient.target(Config.WEB_SERVICE_URI + "/login")
+                .request()
+                .header("X-Forwarded-For", req.getRemoteAddr())
+                .post(Entity.json(user));
         try {
-            Response wsResponse = wsClient.target(Config.WEB_SERVICE_URI + "/login")
-                    .request().post(Entity.json(user));
-
             LOGGER.info("LoginServlet: Status from web service : " + wsResponse.getStatus());
 
             // Essentially forward the cookie onto the browser.
             if (wsResponse.getStatus() == Response.Status.OK.getStatusCode()) {
                 NewCookie newCookie = wsResponse.getCookies().get("auth");
 
+                // Keep the service's protections: hidden from scripts, HTTPS-only if the browser uses HTTPS, and
+                // expiring with the token
                 Cookie browserCookie = new Cookie("auth", newCookie.getValue());
                 browserCookie.setPath("/");
+                browserCookie.setHttpOnly(true);
+                browserCookie.setSecure(req.isSecure());
+                browserCookie.setMaxAge(newCookie.getMaxAge());
                 resp.addCookie(browserCookie);
             }
 
             resp.sendRedirect("./Concerts");
         }
         finally {
-            wsClient.close();
+            // Returns the connection to the pool
+            wsResponse.close();
         }
 
     }
@@ -0,0 +1,108 @@
+package proj.concert.webapp;
+
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.ws.rs.client.Client;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the single JAX-RS client that all servlets use to call the web service at {@link Config#WEB_SERVICE_URI},
+ * when the webapp starts, and closes it when the webapp stops. The client is thread-safe, and keeps a pool of
+ * keep-alive connections to the service, so requests don't pay for building a client or opening a connection. Async
+ * invocations run on a thread pool of the same size as the connection pool, which is shut down with the client.
+ * <p>
+ * The pool and timeouts are set by context parameters in web.xml: <code>concert.client.poolSize</code> (the most
+ * connections to the service, default 50), <code>concert.client.connectTimeoutMillis</code> (how long to wait to
+ * open, or to take from the pool, a connection, default 2000) and <code>concert.client.readTimeoutMillis</code> (how
+ * long to wait for a response, default 10000).
+ * <p>
+ * Every {@link javax.ws.rs.core.Response} read from the client must be closed, or its connection is never returned
+ * to the pool.
+ */
+public class WebServiceClientListener implements ServletContextListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebServiceClientListener.class);
+
+    private static final String CLIENT_ATTRIBUTE = WebServiceClientListener.class.getName() + ".client";
+    private static final String EXECUTOR_ATTRIBUTE = WebServiceClientListener.class.getName() + ".executor";
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+        int poolSize = getIntParameter(context, "concert.client.poolSize", 50);
+        int connectTimeoutMillis = getIntParameter(context, "concert.client.connectTimeoutMillis", 2000);
+        int readTimeoutMillis = getIntParameter(context, "concert.client.readTimeoutMillis", 10000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "web-service-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // All requests go to the one service, so the whole pool is available to its route
+        Client client = new ResteasyClientBuilder()
+                .connectionPoolSize(poolSize)
+                .maxPooledPerRoute(poolSize)
+                .connectionCheckoutTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .executorService(executor)
+                .build();
+        context.setAttribute(EXECUTOR_ATTRIBUTE, executor);
+        context.setAttribute(CLIENT_ATTRIBUTE, client);
+        LOGGER.info("contextInitialized(): Created web service client with a pool of " + poolSize + " connections");
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+        Client client = (Client) context.getAttribute(CLIENT_ATTRIBUTE);
+        if (client != null) {
+            context.removeAttribute(CLIENT_ATTRIBUTE);
+            client.close();
+        }
+
+        // The client doesn't own the executor it was given, so it must be shut down here
+        ExecutorService executor = (ExecutorService) context.getAttribute(EXECUTOR_ATTRIBUTE);
+        if (executor != null) {
+            context.removeAttribute(EXECUTOR_ATTRIBUTE);
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    LOGGER.warn("contextDestroyed(): Async invocations did not finish in time; interrupting them");
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the webapp's shared web service client. It must not be closed.
+     */
+    public static Client getClient(ServletContext context) {
+        Client client = (Client) context.getAttribute(CLIENT_ATTRIBUTE);
+        if (client == null) {
+            throw new IllegalStateException("The web service client has not been created; is "
+                    + WebServiceClientListener.class.getSimpleName() + " registered in web.xml?");
+        }
+        return client;
+    }
+
+    /**
+     * Returns the value of an integer context parameter, or the given default if it isn't set.
+     */
+    static int getIntParameter(ServletContext context, String name, int defaultValue) {
+        String value = context.getInitParameter(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
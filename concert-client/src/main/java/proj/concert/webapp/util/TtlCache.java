@@ -0,0 +1,182 @@
+package proj.concert.webapp.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, in-process cache of data fetched from the web service, where each entry is fresh for a fixed time to live
+ * (TTL). Fresh entries are returned without calling the service. Once an entry expires it is revalidated with a
+ * conditional request carrying its ETag, so an unchanged value costs a 304 rather than a full response.
+ * <p>
+ * Concurrent misses for the same key are collapsed into one fetch, which all of the callers wait on. The least
+ * recently used entry is dropped once the cache holds <code>maxEntries</code> entries. The hit rate is logged every
+ * {@link #LOG_INTERVAL} lookups.
+ *
+ * @param <K> the key type
+ * @param <V> the value type; values must not be modified once cached
+ */
+public class TtlCache<K, V> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TtlCache.class);
+
+    public static final int LOG_INTERVAL = 1000;
+
+    /**
+     * Fetches the value for a key from the web service.
+     */
+    public interface Fetcher<K, V> {
+
+        /**
+         * Starts fetching the value for the given key.
+         *
+         * @param etag the ETag of the cached value, to send in If-None-Match, or null if there is none
+         * @return the fetched value, or {@link Fetched#notModified()} if the service answered 304
+         */
+        CompletableFuture<Fetched<V>> fetch(K key, String etag);
+    }
+
+    /**
+     * The result of a fetch: a value and its ETag, or a notice that the cached value is still current.
+     */
+    public static class Fetched<V> {
+
+        private static final Fetched<?> NOT_MODIFIED = new Fetched<>(null, null);
+
+        private final V value;
+        private final String etag;
+
+        private Fetched(V value, String etag) {
+            this.value = value;
+            this.etag = etag;
+        }
+
+        /**
+         * @param etag the value's ETag, or null if the service didn't send one (the value is then always refetched)
+         */
+        public static <V> Fetched<V> of(V value, String etag) {
+            return new Fetched<>(value, etag);
+        }
+
+        @SuppressWarnings("unchecked")
+        public static <V> Fetched<V> notModified() {
+            return (Fetched<V>) NOT_MODIFIED;
+        }
+    }
+
+    private final String name;
+    private final long ttlNanos;
+    private final Fetcher<K, V> fetcher;
+
+    private final Map<K, Entry<V>> entries;
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * @param name the cache's name, for logging
+     * @param ttlNanos how long an entry is fresh for after it is fetched or revalidated
+     * @param maxEntries the most entries to hold
+     * @param fetcher fetches values from the web service
+     */
+    public TtlCache(String name, long ttlNanos, int maxEntries, Fetcher<K, V> fetcher) {
+        this.name = name;
+        this.ttlNanos = ttlNanos;
+        this.fetcher = fetcher;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the value for the given key: straight away if the cached entry is fresh, otherwise once it has been
+     * fetched or revalidated. If the fetch fails, the future fails with the fetcher's exception.
+     */
+    public CompletableFuture<V> get(K key) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        long now = System.nanoTime();
+        if (entry != null && now - entry.expiresAt < 0) {
+            hits.increment();
+            lookedUp();
+            return CompletableFuture.completedFuture(entry.value);
+        }
+        lookedUp();
+
+        CompletableFuture<V> result = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, result);
+        if (existing != null) {
+            collapsed.increment();
+            return existing;
+        }
+
+        CompletableFuture<Fetched<V>> fetch;
+        try {
+            fetch = fetcher.fetch(key, entry == null ? null : entry.etag);
+        } catch (RuntimeException e) {
+            fetch = new CompletableFuture<>();
+            fetch.completeExceptionally(e);
+        }
+        fetch.whenComplete((fetched, error) -> {
+            if (error == null && fetched == Fetched.NOT_MODIFIED && entry == null) {
+                error = new IllegalStateException("Not Modified received for an uncached " + name + " entry");
+            }
+            if (error != null) {
+                inFlight.remove(key, result);
+                result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                return;
+            }
+            Entry<V> fresh;
+            if (fetched == Fetched.NOT_MODIFIED) {
+                revalidated.increment();
+                fresh = new Entry<>(entry.value, entry.etag, System.nanoTime() + ttlNanos);
+            } else {
+                fresh = new Entry<>(fetched.value, fetched.etag, System.nanoTime() + ttlNanos);
+            }
+            synchronized (entries) {
+                entries.put(key, fresh);
+            }
+            inFlight.remove(key, result);
+            result.complete(fresh.value);
+        });
+        return result;
+    }
+
+    private void lookedUp() {
+        long total = lookups.incrementAndGet();
+        if (total % LOG_INTERVAL == 0) {
+            LOGGER.info("lookedUp(): " + name + " cache hit rate " + String.format("%.1f", 100.0 * hits.sum() / total)
+                    + "% over " + total + " lookups (" + revalidated.sum() + " revalidated with 304, "
+                    + collapsed.sum() + " collapsed into another fetch)");
+        }
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final String etag;
+        private final long expiresAt;
+
+        Entry(V value, String etag, long expiresAt) {
+            this.value = value;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
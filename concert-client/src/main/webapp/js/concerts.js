@@ -14,15 +14,31 @@ window.addEventListener("load", () => {
 
     const modalsDiv = document.querySelector("#modals-here");
 
-    loadConcertSummaries();
+    // Concert summaries are paginated; the next page is loaded when the user scrolls near the end of the list.
+    let nextSummariesCursor = null;
+    let loadingSummaries = false;
 
-    async function loadConcertSummaries() {
-        const concertsResponse = await FetchAPI.getConcertSummaries();
-        const concertsJson = await concertsResponse.json();
+    loadConcertSummaries().then(concertsJson => loadFullConcert(concertsJson[0]));
 
-        concertsJson.forEach(displaySummaryImageFor);
-
-        loadFullConcert(concertsJson[0]);
+    window.addEventListener("scroll", () => {
+        const nearBottom = window.innerHeight + window.scrollY >= document.body.offsetHeight - 500;
+        if (nearBottom && nextSummariesCursor && !loadingSummaries) {
+            loadConcertSummaries(nextSummariesCursor);
+        }
+    });
+
+    async function loadConcertSummaries(after) {
+        loadingSummaries = true;
+        try {
+            const concertsResponse = await FetchAPI.getConcertSummaries(after);
+            const concertsJson = await concertsResponse.json();
+            nextSummariesCursor = FetchAPI.nextCursor(concertsResponse);
+
+            concertsJson.forEach(displaySummaryImageFor);
+            return concertsJson;
+        } finally {
+            loadingSummaries = false;
+        }
     }
 
     function displaySummaryImageFor(summary) {
@@ -98,6 +114,10 @@ window.addEventListener("load", () => {
             th.innerText = theDate.toLocaleDateString("en-UK", options);
             tr.appendChild(th);
 
+            const availabilityTd = document.createElement("td");
+            availabilityTd.dataset.date = date;
+            tr.appendChild(availabilityTd);
+
             const td = document.createElement("td");
 
             const button = document.createElement("button");
@@ -110,6 +130,22 @@ window.addEventListener("load", () => {
             concertDatesTable.appendChild(tr);
 
         });
+
+        displayAvailability(concert.id);
+    }
+
+    async function displayAvailability(concertId) {
+        const availabilityResponse = await FetchAPI.getAvailability(concertId);
+        if (!availabilityResponse.ok) {
+            return;
+        }
+        const availabilityJson = await availabilityResponse.json();
+        availabilityJson.forEach(availability => {
+            const td = concertDatesTable.querySelector(`td[data-date="${availability.date}"]`);
+            if (td) {
+                td.innerText = availability.remaining > 0 ? `${availability.remaining} seats left` : "Sold out";
+            }
+        });
     }
 
     function addPerformerModal(performer, modalShowButton) {
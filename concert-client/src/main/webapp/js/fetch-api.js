@@ -2,18 +2,38 @@ const WEB_URI = "/webservice/services/concert-service";
 
 export const FetchAPI = {
 
-    getConcertSummaries() {
-        return fetch(`${WEB_URI}/concerts/summaries`);
+    /**
+     * Gets one page of concert summaries. Pass the cursor from nextCursor() to get the following page.
+     */
+    getConcertSummaries(after) {
+        return fetch(`${WEB_URI}/concerts/summaries${after ? `?after=${after}` : ""}`);
     },
 
-    getConcerts() {
-        return fetch(`${WEB_URI}/concerts`);
+    getConcerts(after) {
+        return fetch(`${WEB_URI}/concerts${after ? `?after=${after}` : ""}`);
+    },
+
+    /**
+     * Gets the cursor for the next page of a paginated listing from its rel="next" Link header, or null if the given
+     * response is the last page.
+     */
+    nextCursor(response) {
+        const link = response.headers.get("Link");
+        const match = link && link.match(/<[^>]*[?&]after=(\d+)[^>]*>;\s*rel="?next"?/);
+        return match ? match[1] : null;
     },
 
     getConcert(id) {
         return fetch(`${WEB_URI}/concerts/${id}`);
     },
 
+    /**
+     * Gets the seat availability (total, booked and remaining seats) of each of a concert's dates.
+     */
+    getAvailability(concertId) {
+        return fetch(`${WEB_URI}/concerts/${concertId}/availability`);
+    },
+
     makeBookingRequest(bookingRequest) {
         return this.post(`${WEB_URI}/bookings`, bookingRequest);
     },
@@ -0,0 +1,74 @@
+package proj.concert.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import proj.concert.common.jackson.LocalDateTimeDeserializer;
+import proj.concert.common.jackson.LocalDateTimeSerializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents how many seats of one performance (a concert on a date) are booked.
+ * date        the date of the performance
+ * total       the number of seats
+ * booked      the number of those seats that are booked
+ * remaining   the number of those seats that are still available
+ * priceBands  the same counts for each price band, from the most expensive
+ */
+@JsonIgnoreProperties(value = {"total", "booked", "remaining"}, allowGetters = true)
+public class AvailabilityDTO {
+
+    private LocalDateTime date;
+    private List<PriceBandAvailabilityDTO> priceBands = new ArrayList<>();
+
+    public AvailabilityDTO() {
+    }
+
+    public AvailabilityDTO(LocalDateTime date, List<PriceBandAvailabilityDTO> priceBands) {
+        this.date = date;
+        this.priceBands = priceBands;
+    }
+
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    public void setDate(LocalDateTime date) {
+        this.date = date;
+    }
+
+    public List<PriceBandAvailabilityDTO> getPriceBands() {
+        return priceBands;
+    }
+
+    public void setPriceBands(List<PriceBandAvailabilityDTO> priceBands) {
+        this.priceBands = priceBands;
+    }
+
+    public int getTotal() {
+        return priceBands.stream().mapToInt(PriceBandAvailabilityDTO::getTotal).sum();
+    }
+
+    public int getBooked() {
+        return priceBands.stream().mapToInt(PriceBandAvailabilityDTO::getBooked).sum();
+    }
+
+    public int getRemaining() {
+        return getTotal() - getBooked();
+    }
+
+    /**
+     * Returns the percentage of seats that are booked, rounded down, or 0 if the performance has no seats.
+     */
+    public int percentBooked() {
+        int total = getTotal();
+        return total == 0 ? 0 : (int) (getBooked() * 100.0 / total);
+    }
+}
@@ -0,0 +1,71 @@
+package proj.concert.common.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import proj.concert.common.jackson.LocalDateTimeDeserializer;
+import proj.concert.common.jackson.LocalDateTimeSerializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents everything needed to show the booking page for one performance (a concert on a date).
+ * concert         the concert
+ * date            the date requested
+ * validDate       whether the concert plays on that date
+ * bookedSeats     the labels of the seats already booked for the performance (empty if the date isn't valid)
+ */
+public class BookingPageDTO {
+
+    private ConcertDTO concert;
+    private LocalDateTime date;
+    private boolean validDate;
+    private List<String> bookedSeats = new ArrayList<>();
+
+    public BookingPageDTO() {
+    }
+
+    public BookingPageDTO(ConcertDTO concert, LocalDateTime date, boolean validDate, List<String> bookedSeats) {
+        this.concert = concert;
+        this.date = date;
+        this.validDate = validDate;
+        this.bookedSeats = bookedSeats;
+    }
+
+    public ConcertDTO getConcert() {
+        return concert;
+    }
+
+    public void setConcert(ConcertDTO concert) {
+        this.concert = concert;
+    }
+
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    public void setDate(LocalDateTime date) {
+        this.date = date;
+    }
+
+    public boolean isValidDate() {
+        return validDate;
+    }
+
+    public void setValidDate(boolean validDate) {
+        this.validDate = validDate;
+    }
+
+    public List<String> getBookedSeats() {
+        return bookedSeats;
+    }
+
+    public void setBookedSeats(List<String> bookedSeats) {
+        this.bookedSeats = bookedSeats;
+    }
+}
@@ -0,0 +1,68 @@
+package proj.concert.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.math.BigDecimal;
+
+/**
+ * Represents how many seats in one price band of a performance are booked.
+ * name       the price band's name, e.g. "Gold Seating"
+ * price      the price of each seat in the band
+ * total      the number of seats in the band
+ * booked     the number of those seats that are booked
+ * remaining  the number of those seats that are still available
+ */
+@JsonIgnoreProperties(value = "remaining", allowGetters = true)
+public class PriceBandAvailabilityDTO {
+
+    private String name;
+    private BigDecimal price;
+    private int total;
+    private int booked;
+
+    public PriceBandAvailabilityDTO() {
+    }
+
+    public PriceBandAvailabilityDTO(String name, BigDecimal price, int total, int booked) {
+        this.name = name;
+        this.price = price;
+        this.total = total;
+        this.booked = booked;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getBooked() {
+        return booked;
+    }
+
+    public void setBooked(int booked) {
+        this.booked = booked;
+    }
+
+    public int getRemaining() {
+        return total - booked;
+    }
+}
@@ -0,0 +1,129 @@
+package proj.concert.service.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import proj.concert.service.cache.SeatAvailabilityVersions;
+import proj.concert.service.repository.ArchiveRepository;
+import proj.concert.service.services.PersistenceManager;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Singleton background job that moves past performances out of the live Seat and Booking tables into the archive
+ * tables (see ArchivedSeat and ArchivedBooking), so that the live tables, which every seat query scans, only grow
+ * with the future schedule. Archived bookings can still be read through the booking endpoints.
+ * <p>
+ * The job is off unless the system property <code>concert.archive.retentionDays</code> is set; performances older
+ * than that many days are archived every <code>concert.archive.intervalMinutes</code> minutes (default 60). Each
+ * performance is archived in its own transaction, so the job never holds locks on much of the table at once.
+ */
+public class PerformanceArchiver {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(PerformanceArchiver.class);
+
+    public static final String RETENTION_DAYS_PROPERTY = "concert.archive.retentionDays";
+    public static final String INTERVAL_MINUTES_PROPERTY = "concert.archive.intervalMinutes";
+
+    private static final PerformanceArchiver instance = new PerformanceArchiver();
+
+    private ScheduledExecutorService scheduler;
+
+    protected PerformanceArchiver() {
+    }
+
+    public static PerformanceArchiver instance() {
+        return instance;
+    }
+
+    /**
+     * Starts archiving in the background, if a retention period is set. Does nothing if already started.
+     */
+    public synchronized void start() {
+        Long retentionDays = Long.getLong(RETENTION_DAYS_PROPERTY);
+        if (scheduler != null || retentionDays == null) {
+            return;
+        }
+        long intervalMinutes = Long.getLong(INTERVAL_MINUTES_PROPERTY, 60);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "performance-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archiveBefore(LocalDateTime.now().minusDays(retentionDays));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not archive past performances", e);
+            }
+        }, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops archiving in the background, waiting briefly for a run in progress to finish. Does nothing if not started.
+     */
+    public void stop() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            stopping = scheduler;
+            scheduler = null;
+        }
+        if (stopping == null) {
+            return;
+        }
+        stopping.shutdownNow();
+        try {
+            if (!stopping.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.warn("stop(): The archiving job didn't stop within 10 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Archives every performance before the given date that is still in the live tables.
+     *
+     * @return the number of performances archived
+     */
+    public synchronized int archiveBefore(LocalDateTime cutoff) {
+        List<LocalDateTime> dates;
+        EntityManager em = PersistenceManager.instance().createReadOnlyEntityManager();
+        try {
+            dates = new ArchiveRepository(em).findLiveDatesBefore(cutoff);
+        } finally {
+            em.close();
+        }
+
+        for (LocalDateTime date : dates) {
+            int seats = archive(date);
+            // Seat queries for the date now come back empty, so responses cached by clients are out of date
+            SeatAvailabilityVersions.instance().bump(date);
+            LOGGER.debug("archiveBefore(): Archived " + seats + " seats for " + date);
+        }
+        if (!dates.isEmpty()) {
+            LOGGER.info("archiveBefore(): Archived " + dates.size() + " performances before " + cutoff);
+        }
+        return dates.size();
+    }
+
+    private int archive(LocalDateTime date) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            int seats = new ArchiveRepository(em).archive(date);
+            em.getTransaction().commit();
+            return seats;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+}
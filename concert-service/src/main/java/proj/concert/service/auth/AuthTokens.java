@@ -0,0 +1,148 @@
+package proj.concert.service.auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+
+/**
+ * Singleton that issues and verifies the signed tokens held in the "auth" cookie. A token carries the user's ID,
+ * username and expiry time, signed with HMAC-SHA256, so it can be verified without looking the user up in the
+ * database.
+ * <p>
+ * A token has the form <code>payload.signature</code>, both base64url-encoded, where the payload is
+ * <code>id:expiry:username</code> and expiry is in seconds since the epoch.
+ * <p>
+ * The signing key is read (base64-encoded, at least 32 bytes) from the system property
+ * <code>concert.auth.secret</code>. If it isn't set, a random key is generated, and tokens don't survive a restart.
+ * Tokens expire after <code>concert.auth.ttlSeconds</code> seconds (default 86400).
+ */
+public class AuthTokens {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(AuthTokens.class);
+
+    public static final String SECRET_PROPERTY = "concert.auth.secret";
+    public static final String TTL_SECONDS_PROPERTY = "concert.auth.ttlSeconds";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+
+    private static AuthTokens instance;
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final Clock clock;
+
+    /**
+     * @param key the signing key
+     * @param ttlSeconds how long each token is valid for
+     * @param clock the clock that expiry times are measured by
+     */
+    public AuthTokens(byte[] key, long ttlSeconds, Clock clock) {
+        if (key.length < MIN_KEY_BYTES) {
+            throw new IllegalArgumentException("The auth token key must be at least " + MIN_KEY_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(key, ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the tokens signed with the configured key, creating them on first use. The service calls this at
+     * startup, so a misconfigured key fails the deployment rather than every request.
+     *
+     * @throws IllegalStateException if <code>concert.auth.secret</code> is set but isn't a valid key
+     */
+    public static synchronized AuthTokens instance() {
+        if (instance == null) {
+            String secret = System.getProperty(SECRET_PROPERTY);
+            byte[] key;
+            if (secret != null) {
+                try {
+                    key = Base64.getDecoder().decode(secret.trim());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalStateException(SECRET_PROPERTY + " must be base64-encoded", e);
+                }
+                if (key.length < MIN_KEY_BYTES) {
+                    throw new IllegalStateException(SECRET_PROPERTY + " must be at least " + MIN_KEY_BYTES
+                            + " bytes once decoded, but is " + key.length);
+                }
+            } else {
+                LOGGER.info("instance(): " + SECRET_PROPERTY + " is not set, signing auth tokens with a random key");
+                key = new byte[MIN_KEY_BYTES];
+                new SecureRandom().nextBytes(key);
+            }
+            instance = new AuthTokens(key, Long.getLong(TTL_SECONDS_PROPERTY, 86400), Clock.systemUTC());
+        }
+        return instance;
+    }
+
+    /**
+     * Returns how long each token is valid for, in seconds.
+     */
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    /**
+     * Issues a token for the given user.
+     */
+    public String issue(long userId, String username) {
+        long expiry = clock.instant().getEpochSecond() + ttlSeconds;
+        byte[] payload = (userId + ":" + expiry + ":" + username).getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload) + "." + encoder.encodeToString(sign(payload));
+    }
+
+    /**
+     * Verifies a token.
+     *
+     * @return the user the token was issued to, or null if the token is malformed, forged or expired
+     */
+    public UserPrincipal verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payload = decoder.decode(token.substring(0, dot));
+            signature = decoder.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            return null;
+        }
+
+        // The payload was signed by us, so is well-formed
+        String[] fields = new String(payload, StandardCharsets.UTF_8).split(":", 3);
+        if (Long.parseLong(fields[1]) <= clock.instant().getEpochSecond()) {
+            return null;
+        }
+        return new UserPrincipal(Long.parseLong(fields[0]), fields[2]);
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            // Mac instances aren't thread-safe, and are cheap to create
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package proj.concert.service.auth;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Singleton that limits the rate of login attempts with token buckets, so that a burst of attempts (e.g. credential
+ * stuffing) is turned away before it reaches the database. Each attempt must take a token from the bucket for the
+ * client's address, a single global bucket, and the bucket for its username, in that order. The username's token is
+ * only taken once the other limits have let the attempt through, so attempts turned away by their address don't use up
+ * a victim's username limit; and the address is checked before the global limit, so one address can't exhaust it.
+ * <p>
+ * Buckets for usernames and addresses are held in least recently used order, in maps of at most {@link #MAX_KEYS}
+ * entries each; adding a key to a full map drops the bucket used least recently. A new username only gets a bucket
+ * once an attempt for it is within the global limit, so (with the defaults) pushing a still-draining username bucket
+ * out takes longer than the bucket takes to refill; pushing out an address's bucket takes thousands of other addresses.
+ * <p>
+ * The client's address is the remote address of the request, unless the request comes from a trusted proxy (such as
+ * the webapp), in which case it is the address the proxy passes in the X-Forwarded-For header. The trusted proxies are
+ * listed, comma-separated, in <code>concert.login.trustedProxies</code> (default the loopback addresses).
+ * <p>
+ * Each limit is a burst size and a refill rate per minute, read from system properties:
+ * <code>concert.login.usernameBurst</code> and <code>concert.login.usernamePerMinute</code> (default 10 and 10),
+ * <code>concert.login.addressBurst</code> and <code>concert.login.addressPerMinute</code> (default 50 and 60), and
+ * <code>concert.login.globalBurst</code> and <code>concert.login.globalPerMinute</code> (default 500 and 6000).
+ */
+public class LoginThrottle {
+
+    public static final int MAX_KEYS = 10000;
+    public static final String TRUSTED_PROXIES_PROPERTY = "concert.login.trustedProxies";
+    public static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private static LoginThrottle instance;
+
+    private final Limit globalLimit;
+    private final Set<String> trustedProxies;
+    private final LongSupplier nanoClock;
+
+    private final KeyedBuckets usernames;
+    private final KeyedBuckets addresses;
+    private volatile TokenBucket global;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedByUsername = new LongAdder();
+    private final LongAdder rejectedByAddress = new LongAdder();
+    private final LongAdder rejectedGlobally = new LongAdder();
+
+    /**
+     * @param usernameLimit the limit for each username
+     * @param addressLimit the limit for each client address
+     * @param globalLimit the limit for all attempts together
+     * @param maxKeys the most usernames, and the most addresses, to hold buckets for
+     * @param trustedProxies the addresses of proxies whose X-Forwarded-For header is believed
+     * @param nanoClock the time in nanoseconds, as from {@link System#nanoTime()}
+     */
+    public LoginThrottle(Limit usernameLimit, Limit addressLimit, Limit globalLimit, int maxKeys,
+                         Collection<String> trustedProxies, LongSupplier nanoClock) {
+        this.usernames = new KeyedBuckets(usernameLimit, maxKeys);
+        this.addresses = new KeyedBuckets(addressLimit, maxKeys);
+        this.globalLimit = globalLimit;
+        this.trustedProxies = new HashSet<>(trustedProxies);
+        this.nanoClock = nanoClock;
+        reset();
+    }
+
+    public static synchronized LoginThrottle instance() {
+        if (instance == null) {
+            String trustedProxies = System.getProperty(TRUSTED_PROXIES_PROPERTY, "127.0.0.1,0:0:0:0:0:0:0:1,::1");
+            instance = new LoginThrottle(
+                    Limit.fromProperties("concert.login.username", 10, 10),
+                    Limit.fromProperties("concert.login.address", 50, 60),
+                    Limit.fromProperties("concert.login.global", 500, 6000),
+                    MAX_KEYS, Arrays.asList(trustedProxies.trim().split("\\s*,\\s*")), System::nanoTime);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the address of the client making a request: the address in the X-Forwarded-For header if the request
+     * comes from a trusted proxy, otherwise the request's remote address. Of several forwarded addresses, the last is
+     * used, as it was added by the trusted proxy itself.
+     *
+     * @param remoteAddress the address the request came from
+     * @param forwardedFor the X-Forwarded-For header, or null if there is none
+     */
+    public String clientAddress(String remoteAddress, String forwardedFor) {
+        if (forwardedFor == null || !trustedProxies.contains(remoteAddress)) {
+            return remoteAddress;
+        }
+        String forwarded = forwardedFor.substring(forwardedFor.lastIndexOf(',') + 1).trim();
+        return forwarded.isEmpty() ? remoteAddress : forwarded;
+    }
+
+    /**
+     * Takes tokens for a login attempt, if the attempt is within every limit. Tokens taken from the buckets checked
+     * before a rejecting one are not returned, so repeated rejected attempts still count against those limits.
+     *
+     * @param username the username the attempt is for
+     * @param address the client's address (see {@link #clientAddress})
+     * @return 0 if the attempt may go ahead, otherwise the number of seconds until it would be allowed
+     */
+    public long tryAcquire(String username, String address) {
+        long now = nanoClock.getAsLong();
+        TokenBucket bucket = addresses.get(address == null ? "" : address, now);
+        if (!bucket.tryAcquire(now)) {
+            rejectedByAddress.increment();
+            return retryAfterSeconds(bucket, now);
+        }
+        bucket = global;
+        if (!bucket.tryAcquire(now)) {
+            rejectedGlobally.increment();
+            return retryAfterSeconds(bucket, now);
+        }
+        bucket = usernames.get(username == null ? "" : username, now);
+        if (!bucket.tryAcquire(now)) {
+            rejectedByUsername.increment();
+            return retryAfterSeconds(bucket, now);
+        }
+        accepted.increment();
+        return 0;
+    }
+
+    public long getAccepted() { return accepted.sum(); }
+
+    public long getRejectedByUsername() { return rejectedByUsername.sum(); }
+
+    public long getRejectedByAddress() { return rejectedByAddress.sum(); }
+
+    public long getRejectedGlobally() { return rejectedGlobally.sum(); }
+
+    /**
+     * Returns the number of usernames currently holding a bucket.
+     */
+    public int getTrackedUsernames() { return usernames.size(); }
+
+    /**
+     * Returns the number of client addresses currently holding a bucket.
+     */
+    public int getTrackedAddresses() { return addresses.size(); }
+
+    /**
+     * Refills every bucket. FOR TESTING ONLY; called when the database is reset, so each test starts within its limits.
+     */
+    public synchronized void reset() {
+        long now = nanoClock.getAsLong();
+        usernames.clear();
+        addresses.clear();
+        global = globalLimit.newBucket(now);
+    }
+
+    private static long retryAfterSeconds(TokenBucket bucket, long now) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(bucket.nanosUntilAvailable(now) + 999_999_999));
+    }
+
+    /**
+     * A burst size and a refill rate for a token bucket.
+     */
+    public static class Limit {
+
+        private final int burst;
+        private final int perMinute;
+
+        public Limit(int burst, int perMinute) {
+            if (burst < 1 || perMinute < 1) {
+                throw new IllegalArgumentException("A login limit must allow at least one attempt");
+            }
+            this.burst = burst;
+            this.perMinute = perMinute;
+        }
+
+        private static Limit fromProperties(String prefix, int burst, int perMinute) {
+            return new Limit(Integer.getInteger(prefix + "Burst", burst),
+                    Integer.getInteger(prefix + "PerMinute", perMinute));
+        }
+
+        private TokenBucket newBucket(long now) {
+            return new TokenBucket(burst, perMinute / (double) TimeUnit.MINUTES.toNanos(1), now);
+        }
+    }
+
+    /**
+     * A bounded map of buckets, one per key, that drops the least recently used bucket when full.
+     */
+    private static class KeyedBuckets {
+
+        private final Limit limit;
+        private final Map<String, TokenBucket> buckets;
+
+        KeyedBuckets(Limit limit, int maxKeys) {
+            this.limit = limit;
+            this.buckets = new LinkedHashMap<String, TokenBucket>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                    return size() > maxKeys;
+                }
+            };
+        }
+
+        synchronized TokenBucket get(String key, long now) {
+            return buckets.computeIfAbsent(key, k -> limit.newBucket(now));
+        }
+
+        synchronized int size() {
+            return buckets.size();
+        }
+
+        synchronized void clear() {
+            buckets.clear();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package proj.concert.service.auth;
+
+import java.security.Principal;
+
+/**
+ * The user an authenticated request is made by, as carried in their auth token (see {@link AuthTokens}).
+ */
+public class UserPrincipal implements Principal {
+
+    private final long id;
+    private final String username;
+
+    public UserPrincipal(long id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+    public long getId() { return id; }
+
+    /**
+     * Returns the user's username.
+     */
+    @Override
+    public String getName() { return username; }
+
+    @Override
+    public String toString() {
+        return username + " (" + id + ")";
+    }
+}
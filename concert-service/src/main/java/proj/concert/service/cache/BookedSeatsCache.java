@@ -0,0 +1,74 @@
+package proj.concert.service.cache;
+
+import proj.concert.common.types.BookingStatus;
+
+import javax.ws.rs.core.EntityTag;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Singleton cache of the labels of the booked seats for each performance (concert date), as shown on the booking page.
+ * <p>
+ * Each entry is tagged with the date's {@link SeatAvailabilityVersions} version (and epoch) at the time it was
+ * loaded, and is only reloaded once a booking for the date has committed since. The number of entries is capped;
+ * once full, labels for further dates are still loaded but not stored until the next invalidation.
+ */
+public class BookedSeatsCache {
+
+    private static final BookedSeatsCache instance = new BookedSeatsCache();
+
+    private static final int MAX_ENTRIES = 1000;
+
+    private final ConcurrentMap<LocalDateTime, Entry> entries = new ConcurrentHashMap<>();
+
+    protected BookedSeatsCache() {
+    }
+
+    public static BookedSeatsCache instance() {
+        return instance;
+    }
+
+    /**
+     * Returns the labels of the booked seats for the given date, loading (and caching) them with the supplied loader if
+     * there have been bookings for the date since they were cached.
+     *
+     * @return an unmodifiable list of seat labels
+     */
+    public List<String> get(LocalDateTime date, Supplier<List<String>> loader) {
+        // Read the version before loading, so a booking committed mid-load can only make the entry stale, never wrong
+        SeatAvailabilityVersions versions = SeatAvailabilityVersions.instance();
+        EntityTag tag = versions.etagFor(BookingStatus.Booked, versions.getVersion(date));
+        Entry cached = entries.get(date);
+        if (cached != null && cached.tag.equals(tag)) {
+            return cached.labels;
+        }
+
+        List<String> labels = Collections.unmodifiableList(loader.get());
+        if (cached != null || entries.size() < MAX_ENTRIES) {
+            entries.put(date, new Entry(tag, labels));
+        }
+        return labels;
+    }
+
+    /**
+     * Discards every entry. Called whenever the seat data is wiped.
+     */
+    public void invalidate() {
+        entries.clear();
+    }
+
+    private static class Entry {
+
+        private final EntityTag tag;
+        private final List<String> labels;
+
+        Entry(EntityTag tag, List<String> labels) {
+            this.tag = tag;
+            this.labels = labels;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package proj.concert.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import proj.concert.service.util.Page;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Singleton cache of ready-to-write JSON responses for the read-mostly catalog endpoints (concerts and performers).
+ * <p>
+ * Each entry holds the serialized bytes of a response together with a strong ETag derived from a hash of those bytes,
+ * so conditional requests can be answered with 304 Not Modified without touching the database or Jackson. Entries are
+ * tagged with the catalog version they were built against, and are only regenerated once that version changes (see
+ * {@link #invalidate()}).
+ * <p>
+ * Paginated listings and searches are cached per page, so the number of entries is capped; once full, the least
+ * recently used entry is dropped to make room for each new one.
+ */
+public class CatalogResponseCache {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(CatalogResponseCache.class);
+
+    private static final CatalogResponseCache instance = new CatalogResponseCache();
+
+    private static final int MAX_ENTRIES = 1000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, CachedResponse> entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    protected CatalogResponseCache() {
+    }
+
+    public static CatalogResponseCache instance() {
+        return instance;
+    }
+
+    /**
+     * Returns the cached response for the given key, building (and caching) it with the supplied loader if there is no
+     * entry for the current catalog version.
+     *
+     * @param key    the cache key, normally the resource path
+     * @param loader produces the DTO, list of DTOs or {@link Page} of DTOs to serialize, or null if the resource doesn't
+     *               exist
+     * @return the cached response, or null if the loader returned null
+     */
+    public CachedResponse get(String key, Supplier<Object> loader) {
+        long version = catalogVersion.get();
+        CachedResponse cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null && cached.version == version) {
+            return cached;
+        }
+
+        Object dto = loader.get();
+        if (dto == null) {
+            return null;
+        }
+
+        // If the catalog changed while we were loading, the entry is stored against the old version and will simply
+        // be rebuilt on the next request.
+        CachedResponse built;
+        if (dto instanceof Page) {
+            Page<?> page = (Page<?>) dto;
+            built = new CachedResponse(serialize(page.getItems()), page.getNextCursor(), version);
+        } else {
+            built = new CachedResponse(serialize(dto), null, version);
+        }
+        synchronized (entries) {
+            entries.put(key, built);
+        }
+        return built;
+    }
+
+    /**
+     * Moves the catalog on to a new version, discarding every cached response. Must be called by any code path that
+     * changes concerts, performers or concert dates.
+     */
+    public void invalidate() {
+        long version = catalogVersion.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+        LOGGER.debug("invalidate(): Catalog is now at version " + version);
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    private byte[] serialize(Object dto) {
+        try {
+            return mapper.writeValueAsBytes(dto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize catalog response", e);
+        }
+    }
+
+    /**
+     * A serialized JSON response body and its strong ETag. For paginated listings, also holds the cursor of the next
+     * page (null on the last page).
+     */
+    public static class CachedResponse {
+        private final byte[] body;
+        private final EntityTag etag;
+        private final Long nextCursor;
+        private final long version;
+
+        CachedResponse(byte[] body, Long nextCursor, long version) {
+            this.body = body;
+            this.etag = new EntityTag(hash(body));
+            this.nextCursor = nextCursor;
+            this.version = version;
+        }
+
+        public byte[] getBody() { return body; }
+        public EntityTag getEtag() { return etag; }
+        public Long getNextCursor() { return nextCursor; }
+
+        /**
+         * Builds the HTTP response for this entry. If the request carries a matching If-None-Match header, a 304 Not
+         * Modified response is returned instead of the body.
+         */
+        public Response toResponse(Request request) {
+            return toResponse(request, null);
+        }
+
+        /**
+         * As {@link #toResponse(Request)}, also adding the given link (normally the rel="next" page link) if not null.
+         */
+        public Response toResponse(Request request, Link link) {
+            if (request != null) {
+                Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+            }
+            Response.ResponseBuilder builder = Response.ok(body, MediaType.APPLICATION_JSON_TYPE).tag(etag);
+            if (link != null) {
+                builder.links(link);
+            }
+            return builder.build();
+        }
+
+        private static String hash(byte[] body) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+                return new String(Base64.getUrlEncoder().withoutPadding().encode(digest), StandardCharsets.US_ASCII);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package proj.concert.service.cache;
+
+import proj.concert.common.types.BookingStatus;
+
+import javax.ws.rs.core.EntityTag;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Singleton holding a monotonically increasing version number for the seat availability of each performance (concert
+ * date). The version is bumped every time a booking for that date commits, which lets clients poll seat availability
+ * with conditional GETs that are answered from memory.
+ * <p>
+ * Versions are scoped to an epoch, which changes whenever the seat data is reset, so ETags handed out before a reset
+ * can never match afterwards.
+ */
+public class SeatAvailabilityVersions {
+
+    private static final SeatAvailabilityVersions instance = new SeatAvailabilityVersions();
+
+    private final ConcurrentMap<LocalDateTime, AtomicLong> versions = new ConcurrentHashMap<>();
+    private volatile long epoch = System.currentTimeMillis();
+
+    protected SeatAvailabilityVersions() {
+    }
+
+    public static SeatAvailabilityVersions instance() {
+        return instance;
+    }
+
+    /**
+     * Returns the current seat availability version for the given date. Dates that have never been booked are at
+     * version 0.
+     */
+    public long getVersion(LocalDateTime date) {
+        AtomicLong version = versions.get(date);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Records that seat availability for the given date has changed. Must be called after every booking commit.
+     */
+    public long bump(LocalDateTime date) {
+        return versions.computeIfAbsent(date, d -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Returns the current version of every date that has been booked.
+     */
+    public Map<LocalDateTime, Long> getVersions() {
+        Map<LocalDateTime, Long> copy = new HashMap<>();
+        versions.forEach((date, version) -> copy.put(date, version.get()));
+        return copy;
+    }
+
+    /**
+     * Carries versions over from a previous run, e.g. from a seat snapshot. A date's version never goes backwards.
+     */
+    public void restore(Map<LocalDateTime, Long> restored) {
+        restored.forEach((date, version) ->
+                versions.computeIfAbsent(date, d -> new AtomicLong()).accumulateAndGet(version, Math::max));
+    }
+
+    /**
+     * Builds the ETag describing the seats matching the given status filter at the given version of a date.
+     */
+    public EntityTag etagFor(BookingStatus status, long version) {
+        return new EntityTag(epoch + "-" + version + "-" + status);
+    }
+
+    /**
+     * Discards all versions and starts a new epoch. Called whenever the seat data is wiped.
+     */
+    public void reset() {
+        versions.clear();
+        epoch = Math.max(epoch + 1, System.currentTimeMillis());
+    }
+}
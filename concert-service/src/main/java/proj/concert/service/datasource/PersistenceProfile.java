@@ -0,0 +1,90 @@
+package proj.concert.service.datasource;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The databases the service can run against, selected at startup with the system property
+ * <code>concert.persistence.profile</code> (<code>memory</code>, <code>file</code> or <code>server</code>; the default
+ * is <code>memory</code>). Each profile supplies the JDBC URL and the schema action applied when the service starts:
+ * <ul>
+ *     <li><code>memory</code>: a private in-memory database, created empty (then loaded from db-init.sql) on every
+ *     start. For tests and benchmarks.</li>
+ *     <li><code>file</code>: an embedded MVStore database in the directory <code>concert.persistence.dir</code>
+ *     (default <code>data</code>, relative to the working directory). The data is kept across restarts, and the
+ *     schema is updated to match the entities. For a single node.</li>
+ *     <li><code>server</code>: a database on the H2 TCP server at <code>concert.persistence.server</code> (default
+ *     <code>localhost:9092</code>), run as a separate process so it can be managed and backed up apart from the
+ *     service. The schema is only validated, so a service pointed at the wrong database can't change it; create it by
+ *     starting the service once with <code>concert.persistence.schema-action</code> set to <code>update</code>.</li>
+ * </ul>
+ * Only one service node may use a database at a time, whatever the profile. The response caches, the Hibernate
+ * second-level cache, seat availability versions (and so ETags), login limits and, unless
+ * <code>concert.auth.secret</code> is set, the auth token key are all held in the service's memory, so a second node
+ * would serve stale seats and reject the first node's tokens.
+ * <code>concert.persistence.schema-action</code> overrides the schema action of any profile. Whatever the profile,
+ * {@link proj.concert.service.services.PersistenceManager#reset()} drops and recreates the schema.
+ */
+public enum PersistenceProfile {
+
+    MEMORY("drop-and-create") {
+        @Override
+        String url() {
+            return "jdbc:h2:mem:concert;DB_CLOSE_DELAY=-1";
+        }
+    },
+    FILE("update") {
+        @Override
+        String url() {
+            return "jdbc:h2:file:" + System.getProperty(DIRECTORY_PROPERTY, "data") + "/concert";
+        }
+    },
+    SERVER("validate") {
+        @Override
+        String url() {
+            return "jdbc:h2:tcp://" + System.getProperty(SERVER_PROPERTY, "localhost:9092") + "/concert";
+        }
+    };
+
+    public static final String PROFILE_PROPERTY = "concert.persistence.profile";
+    public static final String DIRECTORY_PROPERTY = "concert.persistence.dir";
+    public static final String SERVER_PROPERTY = "concert.persistence.server";
+    public static final String SCHEMA_ACTION_PROPERTY = "concert.persistence.schema-action";
+
+    // Appended to every URL. QUERY_CACHE_SIZE is the number of parsed (prepared) statements H2 caches per connection;
+    // as connections are pooled, the cache lasts across requests.
+    private static final String URL_SETTINGS = ";QUERY_CACHE_SIZE=64";
+
+    private static final String URL = "javax.persistence.jdbc.url";
+    private static final String SCHEMA_ACTION = "javax.persistence.schema-generation.database.action";
+
+    private final String schemaAction;
+
+    PersistenceProfile(String schemaAction) {
+        this.schemaAction = schemaAction;
+    }
+
+    /**
+     * Returns the profile named by the <code>concert.persistence.profile</code> system property.
+     *
+     * @throws IllegalArgumentException if there is no profile with that name
+     */
+    public static PersistenceProfile selected() {
+        return valueOf(System.getProperty(PROFILE_PROPERTY, "memory").trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the persistence unit properties for this profile, to override those in persistence.xml.
+     *
+     * @param wipe if true, the schema is dropped and recreated, whatever the profile's schema action
+     */
+    public Map<String, Object> properties(boolean wipe) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(URL, url() + URL_SETTINGS);
+        properties.put(SCHEMA_ACTION, wipe ? "drop-and-create" : System.getProperty(SCHEMA_ACTION_PROPERTY, schemaAction));
+        return properties;
+    }
+
+    abstract String url();
+}
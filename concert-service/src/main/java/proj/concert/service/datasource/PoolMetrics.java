@@ -0,0 +1,97 @@
+package proj.concert.service.datasource;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics for a single connection pool. HikariCP reports every connection acquisition, usage and timeout to this
+ * tracker; the pool's current size (active, idle and waiting threads) is read from the pool itself when requested,
+ * and may be up to a second old (HikariCP refreshes it at most once a second).
+ */
+public class PoolMetrics implements IMetricsTracker {
+
+    private final String poolName;
+    private final PoolStats poolStats;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    PoolMetrics(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquisitions.increment();
+        acquireNanos.add(elapsedAcquiredNanos);
+        maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usageMillis.add(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    @Override
+    public void close() {
+        PoolMetricsTrackerFactory.unregister(this);
+    }
+
+    public String getPoolName() { return poolName; }
+
+    public int getActiveConnections() { return poolStats.getActiveConnections(); }
+
+    public int getIdleConnections() { return poolStats.getIdleConnections(); }
+
+    public int getTotalConnections() { return poolStats.getTotalConnections(); }
+
+    public int getMaxConnections() { return poolStats.getMaxConnections(); }
+
+    /**
+     * Returns the number of threads currently waiting for a connection.
+     */
+    public int getPendingThreads() { return poolStats.getPendingThreads(); }
+
+    public long getAcquisitions() { return acquisitions.sum(); }
+
+    /**
+     * Returns the mean time taken to acquire a connection from the pool, in milliseconds.
+     */
+    public double getMeanAcquireMillis() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0.0 : acquireNanos.sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the longest time taken to acquire a connection from the pool, in milliseconds.
+     */
+    public double getMaxAcquireMillis() {
+        return maxAcquireNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the mean time a connection was held before being returned to the pool, in milliseconds.
+     */
+    public double getMeanUsageMillis() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0.0 : usageMillis.sum() / (double) count;
+    }
+
+    /**
+     * Returns the number of requests for a connection that timed out (see connectionTimeout in persistence.xml).
+     */
+    public long getTimeouts() { return timeouts.sum(); }
+}
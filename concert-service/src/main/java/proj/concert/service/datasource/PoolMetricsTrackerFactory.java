@@ -0,0 +1,38 @@
+package proj.concert.service.datasource;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates a {@link PoolMetrics} tracker for each HikariCP pool, and keeps track of those belonging to open pools so
+ * that they can be reported. Configured with the hibernate.hikari.metricsTrackerFactory property in persistence.xml;
+ * HikariCP instantiates it by name.
+ */
+public class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private static final Map<String, PoolMetrics> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolMetrics metrics = new PoolMetrics(poolName, poolStats);
+        pools.put(poolName, metrics);
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of every open pool.
+     */
+    public static Collection<PoolMetrics> getPools() {
+        return Collections.unmodifiableCollection(pools.values());
+    }
+
+    static void unregister(PoolMetrics metrics) {
+        pools.remove(metrics.getPoolName(), metrics);
+    }
+}
@@ -0,0 +1,52 @@
+package proj.concert.service.domain;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A booking for a past performance, moved out of the live Booking table by the archive job (see
+ * PerformanceArchiver). It keeps the ID it had as a Booking, so it can still be found by that ID. Archived bookings
+ * are read-only.
+ */
+@Entity
+@Table(name = "ARCHIVED_BOOKING")
+@NamedQueries({
+        @NamedQuery(name = "ArchivedBooking.archiveByDate",
+                query = "INSERT INTO ArchivedBooking (id, concertId, date, userId)"
+                        + " SELECT b.id, b.concertId, b.date, b.user.id FROM Booking b WHERE b.date = :date"),
+        @NamedQuery(name = "ArchivedBooking.findWithSeats",
+                query = "SELECT b FROM ArchivedBooking b LEFT JOIN FETCH b.seats WHERE b.id = :id"),
+        @NamedQuery(name = "ArchivedBooking.findSeatRowsByUserId",
+                query = "SELECT b.id, b.concertId, b.date, s.label, s.price FROM ArchivedBooking b JOIN b.seats s"
+                        + " WHERE b.userId = :userId ORDER BY b.id")
+})
+@NamedNativeQueries({
+        // The join table of Booking.seats can't be the target of a JPQL statement
+        @NamedNativeQuery(name = "ArchivedBooking.deleteBookingSeatsByDate",
+                query = "DELETE FROM BOOKING_SEAT WHERE BOOKING_ID IN (SELECT ID FROM BOOKING WHERE DATE = ?1)")
+})
+public class ArchivedBooking {
+    @Id
+    private Long id;
+    private Long concertId;
+    private LocalDateTime date;
+    @Column(name = "USER_ID")
+    private Long userId;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "USER_ID", insertable = false, updatable = false)
+    private User user;
+    @OneToMany
+    @JoinColumn(name = "bookingId", insertable = false, updatable = false)
+    private Set<ArchivedSeat> seats = new HashSet<>();
+
+    public ArchivedBooking() {}
+
+    public long getId() { return id; }
+    public long getConcertId() { return concertId; }
+    public LocalDateTime getDate() { return date; }
+    public long getUserId() { return userId; }
+    public User getUser() { return user; }
+    public Set<ArchivedSeat> getSeats() { return seats; }
+}
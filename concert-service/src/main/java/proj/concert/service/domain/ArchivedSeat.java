@@ -0,0 +1,41 @@
+package proj.concert.service.domain;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A seat of a past performance, moved out of the live Seat table by the archive job (see PerformanceArchiver). It keeps
+ * the ID it had as a Seat, and refers to the booking it belongs to (if any) by ID.
+ */
+@Entity
+@Table(name = "ARCHIVED_SEAT")
+@NamedQueries({
+        @NamedQuery(name = "ArchivedSeat.archiveBookedByDate",
+                query = "INSERT INTO ArchivedSeat (id, label, isBooked, date, price, bookingId)"
+                        + " SELECT s.id, s.label, s.isBooked, s.date, s.price, b.id FROM Booking b JOIN b.seats s"
+                        + " WHERE b.date = :date"),
+        @NamedQuery(name = "ArchivedSeat.archiveUnbookedByDate",
+                query = "INSERT INTO ArchivedSeat (id, label, isBooked, date, price)"
+                        + " SELECT s.id, s.label, s.isBooked, s.date, s.price FROM Seat s WHERE s.date = :date"
+                        + " AND s.id NOT IN (SELECT a.id FROM ArchivedSeat a WHERE a.date = :date)"),
+        @NamedQuery(name = "ArchivedSeat.findAllDates", query = "SELECT DISTINCT a.date FROM ArchivedSeat a")
+})
+public class ArchivedSeat {
+    @Id
+    private Long id;
+    private String label;
+    private boolean isBooked;
+    private LocalDateTime date;
+    private BigDecimal price;
+    private Long bookingId;
+
+    public ArchivedSeat() {}
+
+    public Long getId() { return id; }
+    public String getLabel() { return label; }
+    public boolean getBookingStatus() { return isBooked; }
+    public LocalDateTime getDate() { return date; }
+    public BigDecimal getCost() { return price; }
+    public Long getBookingId() { return bookingId; }
+}
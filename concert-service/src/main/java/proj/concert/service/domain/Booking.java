@@ -11,6 +11,24 @@ import java.time.LocalDateTime;
 import java.util.*;
 
 @Entity
+@NamedQueries({
+        @NamedQuery(name = "Booking.findWithSeats",
+                query = "SELECT b FROM Booking b LEFT JOIN FETCH b.seats WHERE b.id = :id"),
+        @NamedQuery(name = "Booking.findSeatRowsByUserId",
+                query = "SELECT b.id, b.concertId, b.date, s.label, s.price FROM Booking b JOIN b.seats s"
+                        + " WHERE b.user.id = :userId ORDER BY b.id"),
+        @NamedQuery(name = "Booking.deleteByDate", query = "DELETE FROM Booking b WHERE b.date = :date"),
+        @NamedQuery(name = "Booking.findAnyId", query = "SELECT b.id FROM Booking b"),
+        @NamedQuery(name = "Booking.findMaxId", query = "SELECT MAX(b.id) FROM Booking b")
+})
+// For restoring a journalled booking under its original ID, which persist() can't do with an identity column
+@NamedNativeQueries({
+        @NamedNativeQuery(name = "Booking.insertWithId",
+                query = "INSERT INTO Booking (id, concertId, date, user_id) VALUES (:id, :concertId, :date, :userId)"),
+        @NamedNativeQuery(name = "Booking.insertSeats",
+                query = "INSERT INTO Booking_Seat (Booking_id, seats_id)"
+                        + " SELECT :id, s.id FROM Seat s WHERE s.date = :date AND s.label IN (:labels)")
+})
 public class Booking {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -9,14 +9,38 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.FetchMode;
 import org.hibernate.engine.spi.CascadeStyle;
 import proj.concert.common.jackson.LocalDateTimeDeserializer;
 import proj.concert.common.jackson.LocalDateTimeSerializer;
 import proj.concert.common.types.Genre;
+import proj.concert.service.search.CatalogSearchListener;
 
 @Entity
 @Table(name = "CONCERTS")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(CatalogSearchListener.class)
+@NamedQueries({
+        @NamedQuery(name = "Concert.count", query = "SELECT COUNT(c) FROM Concert c"),
+        @NamedQuery(name = "Concert.findAllDates", query = "SELECT DISTINCT d FROM Concert c JOIN c.dates d"),
+        @NamedQuery(name = "Concert.findAllWithPerformers",
+                query = "SELECT DISTINCT c FROM Concert c LEFT JOIN FETCH c.performers"),
+        @NamedQuery(name = "Concert.findIdsByPerformers",
+                query = "SELECT c.id FROM Concert c JOIN c.performers p WHERE p.id IN :ids"),
+        @NamedQuery(name = "Concert.findIdPage",
+                query = "SELECT c.id FROM Concert c WHERE c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = "Concert.findSummaryPage",
+                query = "SELECT new proj.concert.common.dto.ConcertSummaryDTO(c.id, c.title, c.imageName)"
+                        + " FROM Concert c WHERE c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = "Concert.findPerformerRows",
+                query = "SELECT c.id, c.title, c.imageName, c.blurb, p.id, p.name, p.imageName, p.genre, p.blurb"
+                        + " FROM Concert c LEFT JOIN c.performers p WHERE c.id IN :ids ORDER BY c.id"),
+        @NamedQuery(name = "Concert.findDateRows",
+                query = "SELECT c.id, d FROM Concert c JOIN c.dates d WHERE c.id IN :ids")
+})
 public class Concert implements Comparable<Concert> {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,13 +51,18 @@ public class Concert implements Comparable<Concert> {
     @Column(length = 750)
     private String blurb;
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @CollectionTable(name = "CONCERT_DATES",
+    indexes = @Index(name = "IDX_CONCERT_DATES_DATE", columnList = "date"))
     @Column(name = "date")
     private Set<LocalDateTime> dates = new HashSet<>();
 
     @ManyToMany(cascade = CascadeType.PERSIST)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "concert_performer",
     joinColumns = @JoinColumn(name = "concert_id"),
-    inverseJoinColumns = @JoinColumn(name = "performer_id"))
+    inverseJoinColumns = @JoinColumn(name = "performer_id"),
+    indexes = @Index(name = "IDX_CONCERT_PERFORMER_PERFORMER", columnList = "performer_id"))
     private Set<Performer> performers = new HashSet<>();
 
     public Concert(Long id, String title, String imageName, String blurb) {
@@ -2,13 +2,27 @@ package proj.concert.service.domain;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import proj.concert.common.types.Genre;
+import proj.concert.service.search.CatalogSearchListener;
 
 import javax.persistence.*;
 import java.util.Set;
 
 @Entity
-@Table(name = "Performers")
+@Table(name = "Performers", indexes = @Index(name = "IDX_PERFORMER_GENRE", columnList = "genre"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(CatalogSearchListener.class)
+@NamedQueries({
+        @NamedQuery(name = "Performer.findDtoPage",
+                query = "SELECT new proj.concert.common.dto.PerformerDTO(p.id, p.name, p.imageName, p.genre, p.blurb)"
+                        + " FROM Performer p WHERE p.id > :after ORDER BY p.id"),
+        @NamedQuery(name = "Performer.findDtoPageByGenre",
+                query = "SELECT new proj.concert.common.dto.PerformerDTO(p.id, p.name, p.imageName, p.genre, p.blurb)"
+                        + " FROM Performer p WHERE p.id > :after AND p.genre = :genre ORDER BY p.id")
+})
 public class Performer {
     @Id
     private Long id;
@@ -20,6 +34,7 @@ public class Performer {
     @Column(length = 1000)
     private String blurb;
     @ManyToMany(mappedBy = "performers")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<Concert> concerts;
 
     public Performer() {}
@@ -15,9 +15,33 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
+@NamedQueries({
+		@NamedQuery(name = "Seat.findByDateAndLabels",
+				query = "SELECT s FROM Seat s WHERE s.date = :date AND s.label IN :labels"),
+		@NamedQuery(name = "Seat.findDtosByDate",
+				query = "SELECT new proj.concert.common.dto.SeatDTO(s.label, s.price) FROM Seat s WHERE s.date = :date"),
+		@NamedQuery(name = "Seat.findDtosByDateAndStatus",
+				query = "SELECT new proj.concert.common.dto.SeatDTO(s.label, s.price) FROM Seat s"
+						+ " WHERE s.date = :date AND s.isBooked = :booked"),
+		@NamedQuery(name = "Seat.countByDate", query = "SELECT COUNT(s) FROM Seat s WHERE s.date = :date"),
+		@NamedQuery(name = "Seat.countByDateAndStatus",
+				query = "SELECT COUNT(s) FROM Seat s WHERE s.date = :date AND s.isBooked = :booked"),
+		@NamedQuery(name = "Seat.countByDatesAndPrice",
+				query = "SELECT s.date, s.price, COUNT(s), SUM(CASE WHEN s.isBooked = true THEN 1 ELSE 0 END) FROM Seat s"
+						+ " WHERE s.date IN :dates GROUP BY s.date, s.price ORDER BY s.date, s.price DESC"),
+		@NamedQuery(name = "Seat.findAllDates", query = "SELECT DISTINCT s.date FROM Seat s"),
+		@NamedQuery(name = "Seat.findDatesBefore", query = "SELECT DISTINCT s.date FROM Seat s WHERE s.date < :date"),
+		@NamedQuery(name = "Seat.lockByDate", query = "UPDATE Seat s SET s.isBooked = s.isBooked WHERE s.date = :date"),
+		@NamedQuery(name = "Seat.deleteByDate", query = "DELETE FROM Seat s WHERE s.date = :date"),
+		@NamedQuery(name = "Seat.findBookedLabels",
+				query = "SELECT s.date, s.label FROM Seat s WHERE s.isBooked = true")
+})
 public class Seat{
+	// Seats are created in bulk, so IDs come from a sequence (allocated in blocks, to match the JDBC batch size)
+	// rather than an identity column, which would force each INSERT to run on its own.
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seat_ids")
+	@SequenceGenerator(name = "seat_ids", sequenceName = "SEAT_SEQ", allocationSize = 50)
 	private Long id;
     private String label;
 	private boolean isBooked;
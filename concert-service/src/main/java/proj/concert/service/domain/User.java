@@ -6,6 +6,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "users")
+@NamedQuery(name = "User.findByUsername", query = "SELECT u FROM User u WHERE u.username = :username")
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -13,7 +14,8 @@ public class User {
     private String username;
     private String password;
     private Long version;
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
+    // Mapped by the user foreign key on Booking, so a booking is saved without loading (or changing) this collection
+    @OneToMany(mappedBy = "user", cascade = CascadeType.REMOVE)
     private Set<Booking> bookings = new HashSet<>();
 
     public User() {}
@@ -35,6 +37,5 @@ public class User {
     public void setPassword(String password) { this.password = password; }
     public Long getVersion() {return version; }
     public void setVersion(Long version) { this.version = version; }
-    public void addBooking(Booking booking) { this.bookings.add(booking); }
     public Set<Booking> getBookings() { return bookings; }
 }
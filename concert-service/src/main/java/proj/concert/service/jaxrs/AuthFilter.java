@@ -0,0 +1,30 @@
+package proj.concert.service.jaxrs;
+
+import proj.concert.service.auth.AuthTokens;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Resolves the user making each request from the signed token in its "auth" cookie, without touching the database,
+ * and makes them available to resource methods as the SecurityContext's user principal (a UserPrincipal). A request
+ * without a valid token is let through unauthenticated; resource methods that need a user respond with UNAUTHORIZED.
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class AuthFilter implements ContainerRequestFilter {
+
+    public static final String COOKIE_NAME = "auth";
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        Cookie cookie = requestContext.getCookies().get(COOKIE_NAME);
+        requestContext.setSecurityContext(new TokenSecurityContext(
+                cookie == null ? null : AuthTokens.instance().verify(cookie.getValue()),
+                requestContext.getSecurityContext().isSecure()));
+    }
+}
@@ -0,0 +1,77 @@
+package proj.concert.service.jaxrs;
+
+import proj.concert.common.types.Genre;
+
+import javax.ws.rs.QueryParam;
+import java.time.LocalDateTime;
+
+/**
+ * Query parameters accepted by the paginated catalog listings (/concerts, /concerts/summaries and /performers), for
+ * use with {@link javax.ws.rs.BeanParam}. For example:
+ * <code>
+ *     /concerts?after=20&limit=10&genre=Pop&from=2020-01-01T00:00:00
+ * </code>
+ * <ul>
+ *     <li>after - keyset cursor; only items with an ID greater than this are returned</li>
+ *     <li>limit - maximum number of items per page (defaults to {@link #DEFAULT_LIMIT}, capped at {@link #MAX_LIMIT})</li>
+ *     <li>genre - only concerts with a performer of this genre, or performers of this genre</li>
+ *     <li>performer - only concerts featuring the performer with this ID</li>
+ *     <li>from / to - only concerts with a date in this (inclusive) range</li>
+ * </ul>
+ */
+public class CatalogQueryParams {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 500;
+
+    @QueryParam("after")
+    private Long after;
+    @QueryParam("limit")
+    private Integer limit;
+    @QueryParam("genre")
+    private Genre genre;
+    @QueryParam("performer")
+    private Long performerId;
+    @QueryParam("from")
+    private LocalDateTimeParam from;
+    @QueryParam("to")
+    private LocalDateTimeParam to;
+
+    public CatalogQueryParams() {
+    }
+
+    public CatalogQueryParams(Long after, Integer limit) {
+        this.after = after;
+        this.limit = limit;
+    }
+
+    public long getAfter() { return after == null ? 0 : after; }
+
+    public int getLimit() { return limit == null ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT); }
+
+    public Genre getGenre() { return genre; }
+
+    public Long getPerformerId() { return performerId; }
+
+    public LocalDateTime getFrom() { return from == null ? null : from.getLocalDateTime(); }
+
+    public LocalDateTime getTo() { return to == null ? null : to.getLocalDateTime(); }
+
+    /**
+     * Returns true if the parameters can be used to run a query (i.e. the limit, if given, is positive).
+     */
+    public boolean isValid() {
+        return limit == null || limit > 0;
+    }
+
+    /**
+     * Returns a canonical representation of these parameters, suitable for use in cache keys.
+     */
+    public String toCacheKey() {
+        return "after=" + getAfter() + "&limit=" + getLimit()
+                + (genre == null ? "" : "&genre=" + genre)
+                + (performerId == null ? "" : "&performer=" + performerId)
+                + (from == null ? "" : "&from=" + getFrom())
+                + (to == null ? "" : "&to=" + getTo());
+    }
+}
@@ -0,0 +1,41 @@
+package proj.concert.service.jaxrs;
+
+import proj.concert.service.services.EntityManagerScope;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Opens an {@link EntityManagerScope} for every request handled by a resource method, and closes it once the response
+ * has been produced. Resource methods get the request's EntityManager with {@link EntityManagerScope#current()}; it is
+ * only created if they do so. GET and HEAD requests are given a read-only EntityManager.
+ * <p>
+ * The scope is stored as a request property as well as on the request thread, so it is still closed if the response
+ * is completed on another thread (e.g. when an asynchronous response is resumed). If a resource method throws an
+ * exception that isn't mapped to a response, this filter never sees the response, and
+ * {@link EntityManagerScopeListener} closes the scope instead.
+ */
+@Provider
+public class EntityManagerFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    static final String SCOPE_PROPERTY = EntityManagerScope.class.getName();
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String method = requestContext.getMethod();
+        boolean readOnly = HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method);
+        requestContext.setProperty(SCOPE_PROPERTY, EntityManagerScope.open(readOnly));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        EntityManagerScope scope = (EntityManagerScope) requestContext.getProperty(SCOPE_PROPERTY);
+        if (scope != null) {
+            scope.close();
+        }
+    }
+}
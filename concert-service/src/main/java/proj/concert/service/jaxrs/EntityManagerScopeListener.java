@@ -0,0 +1,28 @@
+package proj.concert.service.jaxrs;
+
+import proj.concert.service.services.EntityManagerScope;
+
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+
+/**
+ * Closes the request's {@link EntityManagerScope} when the servlet container has finished with the request, in case
+ * {@link EntityManagerFilter} didn't get to. RESTEasy skips response filters when a resource method throws an exception
+ * that no ExceptionMapper handles, which would otherwise leave the EntityManager, any transaction it holds and its
+ * pooled connection open, and the scope set on the worker thread. Closing a scope that is already closed does nothing.
+ */
+public class EntityManagerScopeListener implements ServletRequestListener {
+
+    @Override
+    public void requestInitialized(ServletRequestEvent event) {
+    }
+
+    @Override
+    public void requestDestroyed(ServletRequestEvent event) {
+        // JAX-RS request properties are stored as servlet request attributes
+        Object scope = event.getServletRequest().getAttribute(EntityManagerFilter.SCOPE_PROPERTY);
+        if (scope instanceof EntityManagerScope) {
+            ((EntityManagerScope) scope).close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package proj.concert.service.jaxrs;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a JSON array to the response one element at a time, as the elements are produced. For example:
+ * <code>
+ *     return Response.ok(new JsonArrayStreamingOutput(out -> {
+ *         for (SeatDTO seat : ...) {
+ *             out.write(seat);
+ *         }
+ *     }), MediaType.APPLICATION_JSON).build();
+ * </code>
+ * Unlike returning a list, only the element currently being written needs to be in memory, so the memory used by a
+ * request doesn't grow with the size of the result. The source runs when the response body is written (after the
+ * resource method has returned), so it must acquire and release any resources it needs, such as an EntityManager.
+ */
+public class JsonArrayStreamingOutput implements StreamingOutput {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private final ElementSource source;
+
+    public JsonArrayStreamingOutput(ElementSource source) {
+        this.source = source;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        // The container owns the output stream, so the generator must not close it
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(output)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartArray();
+            source.writeTo(element -> MAPPER.writeValue(generator, element));
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Produces the elements of the array, passing each to the given writer in turn.
+     */
+    @FunctionalInterface
+    public interface ElementSource {
+        void writeTo(ElementWriter writer) throws IOException;
+    }
+
+    /**
+     * Serializes a single array element (normally a DTO) to the response.
+     */
+    @FunctionalInterface
+    public interface ElementWriter {
+        void write(Object element) throws IOException;
+    }
+}
@@ -0,0 +1,44 @@
+package proj.concert.service.jaxrs;
+
+import proj.concert.service.auth.UserPrincipal;
+
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * The security context of a request, holding the user resolved from its auth token, if any (see AuthFilter).
+ */
+public class TokenSecurityContext implements SecurityContext {
+
+    private final UserPrincipal principal;
+    private final boolean secure;
+
+    /**
+     * @param principal the authenticated user, or null if the request isn't authenticated
+     * @param secure whether the request was made over HTTPS
+     */
+    public TokenSecurityContext(UserPrincipal principal, boolean secure) {
+        this.principal = principal;
+        this.secure = secure;
+    }
+
+    @Override
+    public UserPrincipal getUserPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        // Every user has the same rights
+        return false;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    @Override
+    public String getAuthenticationScheme() {
+        return principal == null ? null : "Token";
+    }
+}
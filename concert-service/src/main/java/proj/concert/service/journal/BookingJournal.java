@@ -0,0 +1,349 @@
+package proj.concert.service.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Singleton append-only log of accepted bookings, kept in memory-mapped segment files alongside the database. Each
+ * committed booking is appended as a fixed-size {@link BookingRecord}; at startup the records are replayed so that
+ * bookings survive even when the database doesn't (e.g. with the in-memory persistence profile).
+ * <p>
+ * The journal is a best-effort redo log, not the record of truth: a booking is appended after its transaction commits,
+ * and before the booking is acknowledged to the client. Appending first would journal bookings whose commit then
+ * fails, and replay would bring them back. Appending afterwards costs only a 64-byte copy into mapped memory, and a
+ * crash between the commit and the append loses only a booking that no client was told had succeeded (and that the
+ * database still holds, unless it is in memory).
+ * <p>
+ * The journal is off unless the system property <code>concert.journal.dir</code> names its directory. When off, every
+ * method does nothing.
+ * <p>
+ * Appending only copies the record into mapped memory, so it survives the process crashing as soon as append()
+ * returns. Mapped memory is forced to disk in batches, every <code>concert.journal.syncMillis</code> milliseconds
+ * (default 5) by a background thread, so a crash of the machine itself can lose the bookings of the last interval.
+ * A segment that fills up is forced and closed, and a new one started. Every record carries a checksum. A record that
+ * fails it is expected only as the last record written before a crash: at the end of the last segment, where reading
+ * stops and the next append overwrites it. A damaged record anywhere else means records after it would be lost, so
+ * opening or reading the journal fails with an {@link IllegalStateException} rather than skipping them.
+ * <p>
+ * The directory is locked while the journal is open, so it can't be shared by two services, or compacted (see
+ * {@link JournalCompactor}) while in use.
+ */
+public class BookingJournal {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(BookingJournal.class);
+
+    public static final String DIRECTORY_PROPERTY = "concert.journal.dir";
+    public static final String SYNC_MILLIS_PROPERTY = "concert.journal.syncMillis";
+
+    // 64 Ki records of 64 bytes, so each segment is 4 MiB
+    static final int DEFAULT_SEGMENT_CAPACITY = 65536;
+    static final String LOCK_FILE = "journal.lock";
+
+    private static BookingJournal instance;
+
+    private final Path directory;
+    private final int segmentCapacity;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private ScheduledExecutorService syncer;
+    private JournalSegment current;
+    private long nextSequence = 1;
+    private boolean dirty;
+
+    /**
+     * Opens a journal.
+     *
+     * @param directory the directory holding the segments, or null for a journal that is off
+     * @param segmentCapacity the number of records in each segment
+     * @param syncMillis the interval at which appended records are forced to disk
+     */
+    public BookingJournal(Path directory, int segmentCapacity, long syncMillis) {
+        this.directory = directory;
+        this.segmentCapacity = segmentCapacity;
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = tryLock(lockChannel);
+            if (lock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("Journal " + directory + " is in use");
+            }
+            try {
+                openLastSegment();
+            } catch (IOException | RuntimeException e) {
+                lock.release();
+                lockChannel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal " + directory, e);
+        }
+
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "booking-journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized BookingJournal instance() {
+        if (instance == null) {
+            String directory = System.getProperty(DIRECTORY_PROPERTY);
+            instance = new BookingJournal(directory == null ? null : Paths.get(directory), DEFAULT_SEGMENT_CAPACITY,
+                    Long.getLong(SYNC_MILLIS_PROPERTY, 5));
+        }
+        return instance;
+    }
+
+    /**
+     * Closes the singleton journal, if it has been opened, so the next call to instance() opens it afresh. Called when
+     * the service is undeployed, so a redeployment in the same JVM can lock the directory again.
+     */
+    public static synchronized void closeInstance() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Returns the directory holding the journal, or null if the journal is off.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the sequence number of the last record appended, or 0 if there are none.
+     */
+    public synchronized long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    /**
+     * Appends a booking that has been committed to the database.
+     *
+     * @param bookingId the ID the database gave the booking
+     * @return the booking's sequence number in the journal, or 0 if the journal is off
+     */
+    public synchronized long append(long bookingId, long concertId, LocalDateTime date, Collection<String> seatLabels,
+                                    long userId) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        try {
+            if (current.isFull()) {
+                current.force();
+                current.close();
+                current = JournalSegment.open(JournalSegment.pathFor(directory, nextSequence), segmentCapacity);
+            }
+            long sequence = nextSequence++;
+            current.append(new BookingRecord(sequence, concertId, date, userId, BookingRecord.toSeats(seatLabels),
+                    bookingId));
+            dirty = true;
+            return sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to journal " + directory, e);
+        }
+    }
+
+    /**
+     * Passes every record in the journal, oldest first, to the given consumer.
+     *
+     * @return the number of records read
+     */
+    public long replay(Consumer<BookingRecord> consumer) {
+        return replay(0, consumer);
+    }
+
+    /**
+     * Passes the records after the given sequence number, oldest first, to the given consumer. Segments holding only
+     * earlier records aren't read at all.
+     *
+     * @return the number of records passed to the consumer
+     */
+    public synchronized long replay(long afterSequence, Consumer<BookingRecord> consumer) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        try {
+            return readAll(directory, afterSequence, consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read journal " + directory, e);
+        }
+    }
+
+    /**
+     * Forces records appended since the last sync to disk. Appends carry on while the records are being forced.
+     */
+    public void sync() {
+        JournalSegment segment;
+        synchronized (this) {
+            if (!dirty || current == null) {
+                return;
+            }
+            segment = current;
+            dirty = false;
+        }
+        // A full segment is forced when it is closed, so this only ever forces records already written
+        segment.force();
+    }
+
+    /**
+     * Deletes every record. FOR TESTING ONLY; called when the database is wiped.
+     */
+    public synchronized void reset() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            current.close();
+            for (Path segment : JournalSegment.list(directory)) {
+                Files.delete(segment);
+            }
+            nextSequence = 1;
+            dirty = false;
+            current = JournalSegment.open(JournalSegment.pathFor(directory, nextSequence), segmentCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not reset journal " + directory, e);
+        }
+    }
+
+    /**
+     * Forces any outstanding records to disk and releases the journal's files.
+     */
+    public synchronized void close() {
+        if (!isEnabled() || current == null) {
+            return;
+        }
+        syncer.shutdownNow();
+        try {
+            current.force();
+            current.close();
+            current = null;
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close journal " + directory, e);
+        }
+    }
+
+    /**
+     * Reads every record in the segments in the given directory, oldest first. Reading stops at a record that fails
+     * validation at the end of the last segment.
+     *
+     * @throws IllegalStateException if a record anywhere else fails validation
+     */
+    static long readAll(Path directory, Consumer<BookingRecord> consumer) throws IOException {
+        return readAll(directory, 0, consumer);
+    }
+
+    /**
+     * Reads the records after the given sequence number in the segments in the given directory, oldest first.
+     *
+     * @throws IllegalStateException if a record fails validation anywhere but at the end of the last segment
+     */
+    static long readAll(Path directory, long afterSequence, Consumer<BookingRecord> consumer) throws IOException {
+        long[] count = {0};
+        List<Path> paths = JournalSegment.list(directory);
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            // Every record in a segment comes before the first record of the next one
+            if (i + 1 < paths.size() && sequenceOf(paths.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            try (JournalSegment segment = JournalSegment.openForRead(path)) {
+                segment.read(record -> {
+                    if (record.getSequence() > afterSequence) {
+                        consumer.accept(record);
+                        count[0]++;
+                    }
+                });
+                if (segment.isCorrupt()) {
+                    checkCorruptOnlyAtEnd(segment, i == paths.size() - 1);
+                    LOGGER.warn("readAll(): Stopped at an invalid record after " + segment.size() + " records in "
+                            + path);
+                }
+            }
+        }
+        return count[0];
+    }
+
+    /**
+     * Tries to lock the given file for this process.
+     *
+     * @return the lock, or null if another process (or journal) holds it
+     */
+    static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reopens the last segment for appending, or creates the first one.
+     */
+    private void openLastSegment() throws IOException {
+        List<Path> segments = JournalSegment.list(directory);
+        Path last = segments.isEmpty() ? JournalSegment.pathFor(directory, nextSequence) : segments.get(segments.size() - 1);
+        current = JournalSegment.open(last, segmentCapacity);
+        long[] lastSequence = {0};
+        current.read(record -> lastSequence[0] = record.getSequence());
+        if (current.isCorrupt()) {
+            checkCorruptOnlyAtEnd(current, true);
+            LOGGER.warn("openLastSegment(): Discarding an invalid record after " + current.size() + " records in "
+                    + last);
+        }
+        if (current.size() > 0) {
+            nextSequence = lastSequence[0] + 1;
+        } else if (!segments.isEmpty()) {
+            // An empty segment is named after the sequence number it starts at
+            nextSequence = sequenceOf(last);
+        }
+    }
+
+    /**
+     * Fails unless the invalid record just found in the given segment is the last record written to the journal.
+     *
+     * @param last whether the segment is the journal's last
+     */
+    private static void checkCorruptOnlyAtEnd(JournalSegment segment, boolean last) {
+        if (!last || !segment.isCorruptOnlyAtEnd()) {
+            throw new IllegalStateException("Journal segment " + segment.getPath() + " has an invalid record after "
+                    + segment.size() + " records, with further records after it");
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.replaceAll("\\D", ""));
+    }
+}
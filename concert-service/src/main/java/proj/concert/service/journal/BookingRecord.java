@@ -0,0 +1,150 @@
+package proj.concert.service.journal;
+
+import proj.concert.service.util.TheatreLayout;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * One accepted booking, as written to the {@link BookingJournal}.
+ * <p>
+ * Every record has the same binary layout, RECORD_SIZE bytes long (all values big-endian):
+ * <pre>
+ *  0  int   magic (marks the slot as written; zero in an empty slot)
+ *  4  int   CRC-32 of bytes 8 to 63
+ *  8  long  sequence number, one more than the previous record's
+ * 16  long  concert ID
+ * 24  long  date, in whole seconds since the epoch (UTC)
+ * 32  long  user ID
+ * 40  long  seats 0-63, as a bitmap of seat indexes (see TheatreLayout.indexOf)
+ * 48  long  seats 64-127
+ * 56  long  booking ID (0 in records written before IDs were journalled)
+ * </pre>
+ * The booking ID is kept so that replay can restore a booking under the ID its client was given.
+ */
+public class BookingRecord {
+
+    static final int RECORD_SIZE = 64;
+    static final int MAGIC = 0x424B4731; // "BKG1"
+
+    private static final int CHECKED_OFFSET = 8;
+    private static final int SEAT_WORDS = 2;
+
+    static {
+        if (TheatreLayout.NUM_SEATS_IN_THEATRE > SEAT_WORDS * Long.SIZE) {
+            throw new IllegalStateException("The theatre has more seats than a journal record can hold");
+        }
+    }
+
+    private final long sequence;
+    private final long concertId;
+    private final LocalDateTime date;
+    private final long userId;
+    private final BitSet seats;
+    private final long bookingId;
+
+    BookingRecord(long sequence, long concertId, LocalDateTime date, long userId, BitSet seats, long bookingId) {
+        this.sequence = sequence;
+        this.concertId = concertId;
+        this.date = date;
+        this.userId = userId;
+        this.seats = seats;
+        this.bookingId = bookingId;
+    }
+
+    /**
+     * Converts seat labels to the bitmap stored in a record.
+     *
+     * @throws IllegalArgumentException if a label isn't a seat in the theatre
+     */
+    static BitSet toSeats(Collection<String> labels) {
+        BitSet seats = new BitSet(TheatreLayout.NUM_SEATS_IN_THEATRE);
+        for (String label : labels) {
+            int index = TheatreLayout.indexOf(label);
+            if (index < 0) {
+                throw new IllegalArgumentException("No such seat: " + label);
+            }
+            seats.set(index);
+        }
+        return seats;
+    }
+
+    public long getSequence() { return sequence; }
+    public long getConcertId() { return concertId; }
+    public LocalDateTime getDate() { return date; }
+    public long getUserId() { return userId; }
+
+    /**
+     * Returns the ID the booking was given in the database, or 0 if the record predates journalled IDs.
+     */
+    public long getBookingId() { return bookingId; }
+
+    public List<String> getSeatLabels() {
+        List<String> labels = new ArrayList<>();
+        for (int i = seats.nextSetBit(0); i >= 0; i = seats.nextSetBit(i + 1)) {
+            labels.add(TheatreLayout.labelOf(i));
+        }
+        return labels;
+    }
+
+    /**
+     * Writes this record into the buffer at the given offset. The magic number is written last, so a record is never
+     * seen as present until the rest of it has been written.
+     */
+    void writeTo(ByteBuffer buffer, int offset) {
+        long[] words = seats.toLongArray();
+        buffer.putLong(offset + 8, sequence);
+        buffer.putLong(offset + 16, concertId);
+        buffer.putLong(offset + 24, date.toEpochSecond(ZoneOffset.UTC));
+        buffer.putLong(offset + 32, userId);
+        for (int i = 0; i < SEAT_WORDS; i++) {
+            buffer.putLong(offset + 40 + i * Long.BYTES, i < words.length ? words[i] : 0);
+        }
+        buffer.putLong(offset + 56, bookingId);
+        buffer.putInt(offset + 4, checksum(buffer, offset));
+        buffer.putInt(offset, MAGIC);
+    }
+
+    /**
+     * Returns true if the slot at the given offset has never been written.
+     */
+    static boolean isEmpty(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset) == 0;
+    }
+
+    /**
+     * Reads the record at the given offset.
+     *
+     * @return the record, or null if the slot doesn't hold a complete, uncorrupted record
+     */
+    static BookingRecord readFrom(ByteBuffer buffer, int offset) {
+        if (buffer.getInt(offset) != MAGIC || buffer.getInt(offset + 4) != checksum(buffer, offset)) {
+            return null;
+        }
+        long[] words = new long[SEAT_WORDS];
+        for (int i = 0; i < SEAT_WORDS; i++) {
+            words[i] = buffer.getLong(offset + 40 + i * Long.BYTES);
+        }
+        return new BookingRecord(
+                buffer.getLong(offset + 8),
+                buffer.getLong(offset + 16),
+                LocalDateTime.ofEpochSecond(buffer.getLong(offset + 24), 0, ZoneOffset.UTC),
+                buffer.getLong(offset + 32),
+                BitSet.valueOf(words),
+                buffer.getLong(offset + 56));
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(offset + RECORD_SIZE).position(offset + CHECKED_OFFSET);
+        crc.update(checked);
+        return (int) crc.getValue();
+    }
+}
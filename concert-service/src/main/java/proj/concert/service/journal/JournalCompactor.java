@@ -0,0 +1,124 @@
+package proj.concert.service.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+/**
+ * Offline tool that rewrites a booking journal, dropping the bookings for performances that have already been held
+ * and any invalid records at the end of the journal. The remaining records keep their sequence numbers, and are packed
+ * into full segments; sequence numbers are never reused.
+ * <p>
+ * The journal must not be in use; the service holds a lock on it while running. Run with:
+ * <code>java -cp ... proj.concert.service.journal.JournalCompactor &lt;directory&gt; [&lt;keep-from&gt;]</code>
+ * where keep-from is an ISO date-time (e.g. 2020-02-15T00:00:00), defaulting to now. The compacted segments are
+ * written to a subdirectory first, and only replace the originals once complete; if the tool is interrupted after
+ * deleting the originals, move the segments from that subdirectory back into the journal directory.
+ */
+public class JournalCompactor {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(JournalCompactor.class);
+
+    static final String WORK_DIRECTORY = "compacting";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: JournalCompactor <directory> [<keep-from>]");
+            System.exit(2);
+        }
+        LocalDateTime keepFrom = args.length == 2 ? LocalDateTime.parse(args[1]) : LocalDateTime.now();
+        long kept = compact(Paths.get(args[0]), keepFrom, BookingJournal.DEFAULT_SEGMENT_CAPACITY);
+        System.out.println("Kept " + kept + " bookings");
+    }
+
+    /**
+     * Compacts the journal in the given directory.
+     *
+     * @param keepFrom bookings for performances before this are dropped
+     * @param segmentCapacity the number of records in each compacted segment
+     * @return the number of records kept
+     * @throws IllegalStateException if the journal is in use
+     */
+    public static long compact(Path directory, LocalDateTime keepFrom, int segmentCapacity) throws IOException {
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve(BookingJournal.LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = BookingJournal.tryLock(lockChannel);
+            if (lock == null) {
+                throw new IllegalStateException("Journal " + directory + " is in use");
+            }
+            try {
+                Path work = directory.resolve(WORK_DIRECTORY);
+                Files.createDirectories(work);
+                for (Path stale : JournalSegment.list(work)) {
+                    Files.delete(stale);
+                }
+
+                long[] counts = new long[2];
+                long[] lastSequences = new long[2];
+                JournalSegment[] output = new JournalSegment[1];
+                try {
+                    counts[0] = BookingJournal.readAll(directory, record -> {
+                        lastSequences[0] = record.getSequence();
+                        if (record.getDate().isBefore(keepFrom)) {
+                            return;
+                        }
+                        try {
+                            if (output[0] == null || output[0].isFull()) {
+                                if (output[0] != null) {
+                                    output[0].force();
+                                    output[0].close();
+                                }
+                                output[0] = JournalSegment.open(
+                                        JournalSegment.pathFor(work, record.getSequence()), segmentCapacity);
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        output[0].append(record);
+                        lastSequences[1] = record.getSequence();
+                        counts[1]++;
+                    });
+                    if (lastSequences[0] > lastSequences[1]) {
+                        // The last records were dropped; an empty segment keeps their sequence numbers from being
+                        // reused by the journal
+                        if (output[0] != null) {
+                            output[0].force();
+                            output[0].close();
+                        }
+                        output[0] = JournalSegment.open(JournalSegment.pathFor(work, lastSequences[0] + 1),
+                                segmentCapacity);
+                    }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } finally {
+                    if (output[0] != null) {
+                        output[0].force();
+                        output[0].close();
+                    }
+                }
+
+                for (Path original : JournalSegment.list(directory)) {
+                    Files.delete(original);
+                }
+                for (Path compacted : JournalSegment.list(work)) {
+                    Files.move(compacted, directory.resolve(compacted.getFileName()));
+                }
+                Files.delete(work);
+
+                LOGGER.info("compact(): Kept " + counts[1] + " of " + counts[0] + " records in " + directory);
+                return counts[1];
+            } finally {
+                lock.release();
+            }
+        }
+    }
+}
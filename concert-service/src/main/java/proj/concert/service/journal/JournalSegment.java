@@ -0,0 +1,145 @@
+package proj.concert.service.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * One file of the booking journal: a fixed number of record slots, memory-mapped in full. Records are written into
+ * consecutive slots; the first empty slot marks the end of the segment. A segment's file name holds the sequence
+ * number of its first record, so segments sort in the order they were written.
+ * <p>
+ * Not thread-safe; {@link BookingJournal} serializes access.
+ */
+class JournalSegment implements Closeable {
+
+    private static final String PREFIX = "bookings-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int size;
+    private boolean corrupt;
+
+    private JournalSegment(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Opens a segment for appending, creating it if it doesn't exist, and finds the end of the records already in it.
+     *
+     * @param capacity the number of records the segment holds
+     */
+    static JournalSegment open(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                (long) capacity * BookingRecord.RECORD_SIZE);
+        JournalSegment segment = new JournalSegment(path, channel, buffer, capacity);
+        segment.read(record -> { });
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment for reading only.
+     */
+    static JournalSegment openForRead(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        long length = channel.size();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        return new JournalSegment(path, channel, buffer, (int) (length / BookingRecord.RECORD_SIZE));
+    }
+
+    static Path pathFor(Path directory, long firstSequence) {
+        return directory.resolve(String.format("%s%019d%s", PREFIX, firstSequence, SUFFIX));
+    }
+
+    /**
+     * Returns the segment files in the given directory, in the order they were written.
+     */
+    static List<Path> list(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                paths.add(file);
+            }
+        }
+        paths.sort(null);
+        return paths;
+    }
+
+    /**
+     * Passes each record in the segment, in order, to the given consumer. Stops at the first empty slot, or at the
+     * first slot that fails validation (a torn or corrupted write), in which case isCorrupt() returns true. Later
+     * appends overwrite a slot that failed validation.
+     *
+     * @return the number of records read
+     */
+    int read(Consumer<BookingRecord> consumer) {
+        size = 0;
+        corrupt = false;
+        while (size < capacity) {
+            int offset = size * BookingRecord.RECORD_SIZE;
+            if (BookingRecord.isEmpty(buffer, offset)) {
+                break;
+            }
+            BookingRecord record = BookingRecord.readFrom(buffer, offset);
+            if (record == null) {
+                corrupt = true;
+                break;
+            }
+            consumer.accept(record);
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Returns whether the slot that failed validation in the last read() is the last one written, i.e. every later
+     * slot is empty, as it is after a write torn by a crash. Only meaningful when isCorrupt() returns true.
+     */
+    boolean isCorruptOnlyAtEnd() {
+        for (int slot = size + 1; slot < capacity; slot++) {
+            if (!BookingRecord.isEmpty(buffer, slot * BookingRecord.RECORD_SIZE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void append(BookingRecord record) {
+        record.writeTo(buffer, size * BookingRecord.RECORD_SIZE);
+        size++;
+    }
+
+    /**
+     * Forces the records written so far to the storage device.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    boolean isFull() { return size == capacity; }
+    boolean isCorrupt() { return corrupt; }
+    int size() { return size; }
+    Path getPath() { return path; }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released when the buffer is garbage collected
+        channel.close();
+    }
+}
@@ -0,0 +1,162 @@
+package proj.concert.service.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The booked seats and availability version of every performance (concert date), as of a given record in the
+ * {@link BookingJournal}. A snapshot lets startup replay only the journal records written after it.
+ * <p>
+ * A snapshot is kept in a single file in the journal directory, with this binary layout (all values big-endian):
+ * <pre>
+ *  0  int   magic
+ *  4  int   CRC-32 of the rest of the file
+ *  8  long  sequence number of the last journal record reflected in the snapshot
+ * 16  int   number of performances, then for each:
+ *     long  date, in whole seconds since the epoch (UTC)
+ *     long  availability version
+ *     long  seats 0-63, as a bitmap of seat indexes (see TheatreLayout.indexOf)
+ *     long  seats 64-127
+ * </pre>
+ * The file is replaced atomically, so a crash while writing a snapshot leaves the previous one in place.
+ */
+public class SeatSnapshot {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(SeatSnapshot.class);
+
+    static final String FILE = "seats.snapshot";
+    private static final String TEMP_FILE = "seats.snapshot.tmp";
+    private static final int MAGIC = 0x53454154; // "SEAT"
+    private static final int HEADER_SIZE = 20;
+    private static final int ENTRY_SIZE = 32;
+    private static final int CHECKED_OFFSET = 8;
+
+    private final long sequence;
+    private final Map<LocalDateTime, BitSet> bookedSeats;
+    private final Map<LocalDateTime, Long> versions;
+
+    /**
+     * @param sequence the last journal record reflected in the snapshot
+     * @param bookedSeats the booked seats of each performance, as bitmaps of seat indexes
+     * @param versions the availability version of each performance; performances missing here are at version 0
+     */
+    public SeatSnapshot(long sequence, Map<LocalDateTime, BitSet> bookedSeats, Map<LocalDateTime, Long> versions) {
+        this.sequence = sequence;
+        this.bookedSeats = bookedSeats;
+        this.versions = versions;
+    }
+
+    public long getSequence() { return sequence; }
+    public Map<LocalDateTime, BitSet> getBookedSeats() { return Collections.unmodifiableMap(bookedSeats); }
+    public Map<LocalDateTime, Long> getVersions() { return Collections.unmodifiableMap(versions); }
+
+    /**
+     * Returns true if every seat booked in this snapshot is also booked in the given seat state, i.e. if the state has
+     * already had every journal record up to this snapshot applied to it.
+     */
+    public boolean isContainedIn(Map<LocalDateTime, BitSet> state) {
+        for (Map.Entry<LocalDateTime, BitSet> entry : bookedSeats.entrySet()) {
+            BitSet missing = (BitSet) entry.getValue().clone();
+            BitSet booked = state.get(entry.getKey());
+            if (booked != null) {
+                missing.andNot(booked);
+            }
+            if (!missing.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes this snapshot to the given journal directory, replacing any previous one once it is safely on disk.
+     */
+    public void write(Path directory) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bookedSeats.size() * ENTRY_SIZE);
+        buffer.putLong(8, sequence);
+        buffer.putInt(16, bookedSeats.size());
+        int offset = HEADER_SIZE;
+        for (Map.Entry<LocalDateTime, BitSet> entry : bookedSeats.entrySet()) {
+            long[] words = entry.getValue().toLongArray();
+            buffer.putLong(offset, entry.getKey().toEpochSecond(ZoneOffset.UTC));
+            buffer.putLong(offset + 8, versions.getOrDefault(entry.getKey(), 0L));
+            buffer.putLong(offset + 16, words.length > 0 ? words[0] : 0);
+            buffer.putLong(offset + 24, words.length > 1 ? words[1] : 0);
+            offset += ENTRY_SIZE;
+        }
+        buffer.putInt(4, checksum(buffer));
+        buffer.putInt(0, MAGIC);
+
+        Path temp = directory.resolve(TEMP_FILE);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the snapshot in the given journal directory.
+     *
+     * @return the snapshot, or null if there is none, or it is invalid
+     */
+    public static SeatSnapshot read(Path directory) throws IOException {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(FILE)));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.capacity() != HEADER_SIZE + buffer.getInt(16) * ENTRY_SIZE
+                || buffer.getInt(4) != checksum(buffer)) {
+            LOGGER.warn("read(): Ignoring an invalid snapshot in " + directory);
+            return null;
+        }
+
+        int count = buffer.getInt(16);
+        Map<LocalDateTime, BitSet> bookedSeats = new HashMap<>(count * 2);
+        Map<LocalDateTime, Long> versions = new HashMap<>(count * 2);
+        for (int offset = HEADER_SIZE; offset < buffer.capacity(); offset += ENTRY_SIZE) {
+            LocalDateTime date = LocalDateTime.ofEpochSecond(buffer.getLong(offset), 0, ZoneOffset.UTC);
+            versions.put(date, buffer.getLong(offset + 8));
+            bookedSeats.put(date, BitSet.valueOf(new long[]{buffer.getLong(offset + 16), buffer.getLong(offset + 24)}));
+        }
+        return new SeatSnapshot(buffer.getLong(8), bookedSeats, versions);
+    }
+
+    /**
+     * Deletes the snapshot in the given journal directory, if there is one.
+     */
+    public static void delete(Path directory) throws IOException {
+        Files.deleteIfExists(directory.resolve(FILE));
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(buffer.capacity()).position(CHECKED_OFFSET);
+        crc.update(checked);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,143 @@
+package proj.concert.service.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import proj.concert.service.cache.SeatAvailabilityVersions;
+import proj.concert.service.datasource.PersistenceProfile;
+import proj.concert.service.repository.SeatRepository;
+import proj.concert.service.services.PersistenceManager;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Singleton that periodically writes a {@link SeatSnapshot} of the database's seat state to the journal directory, on
+ * a background thread rather than on the request path. A snapshot is only written when bookings have been journalled
+ * since the last one. Does nothing when the {@link BookingJournal} is off, or with the memory persistence profile:
+ * that database starts empty, so a snapshot of it could never let startup skip any of the journal.
+ * <p>
+ * The interval is set by the system property <code>concert.snapshot.intervalSeconds</code> (default 60).
+ */
+public class SeatSnapshotter {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(SeatSnapshotter.class);
+
+    public static final String INTERVAL_PROPERTY = "concert.snapshot.intervalSeconds";
+
+    private static final SeatSnapshotter instance = new SeatSnapshotter();
+
+    private ScheduledExecutorService scheduler;
+    private long lastSequence;
+
+    protected SeatSnapshotter() {
+    }
+
+    public static SeatSnapshotter instance() {
+        return instance;
+    }
+
+    /**
+     * Starts writing snapshots in the background, if the journal is on. Does nothing if already started.
+     */
+    public synchronized void start() {
+        if (scheduler != null || !isUseful()) {
+            return;
+        }
+        long intervalSeconds = Long.getLong(INTERVAL_PROPERTY, 60);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "seat-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                takeSnapshot();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not write a seat snapshot", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops writing snapshots in the background, waiting briefly for one being written to finish. Does nothing if not
+     * started.
+     */
+    public void stop() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            stopping = scheduler;
+            scheduler = null;
+        }
+        if (stopping == null) {
+            return;
+        }
+        stopping.shutdownNow();
+        try {
+            if (!stopping.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.warn("stop(): The snapshot writer didn't stop within 10 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes a snapshot now, unless nothing has been journalled since the last one.
+     *
+     * @return true if a snapshot was written
+     */
+    public synchronized boolean takeSnapshot() {
+        if (!isUseful()) {
+            return false;
+        }
+        BookingJournal journal = BookingJournal.instance();
+        // Records up to this one are committed, so the seat state read afterwards reflects at least all of them
+        long sequence = journal.lastSequence();
+        if (sequence == lastSequence) {
+            return false;
+        }
+
+        SeatSnapshot snapshot;
+        EntityManager em = PersistenceManager.instance().createReadOnlyEntityManager();
+        try {
+            snapshot = new SeatSnapshot(sequence, new SeatRepository(em).findBookedSeats(),
+                    SeatAvailabilityVersions.instance().getVersions());
+        } finally {
+            em.close();
+        }
+        try {
+            snapshot.write(journal.getDirectory());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write a seat snapshot", e);
+        }
+        lastSequence = sequence;
+        LOGGER.debug("takeSnapshot(): Wrote a snapshot of " + snapshot.getBookedSeats().size()
+                + " performances at journal record " + sequence);
+        return true;
+    }
+
+    private static boolean isUseful() {
+        return BookingJournal.instance().isEnabled() && PersistenceProfile.selected() != PersistenceProfile.MEMORY;
+    }
+
+    /**
+     * Deletes the current snapshot. FOR TESTING ONLY; called when the database and journal are wiped.
+     */
+    public synchronized void reset() {
+        BookingJournal journal = BookingJournal.instance();
+        if (!journal.isEnabled()) {
+            return;
+        }
+        try {
+            SeatSnapshot.delete(journal.getDirectory());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete the seat snapshot", e);
+        }
+        lastSequence = 0;
+    }
+}
@@ -0,0 +1,93 @@
+package proj.concert.service.repository;
+
+import org.hibernate.jpa.QueryHints;
+import proj.concert.service.domain.ArchivedBooking;
+import proj.concert.service.domain.ArchivedSeat;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Moves past performances into the archive tables, and queries archived bookings, using the named queries declared on
+ * {@link ArchivedSeat}, {@link ArchivedBooking} and the live entities.
+ */
+public class ArchiveRepository {
+
+    private static final String FIND_LIVE_DATES_BEFORE = "Seat.findDatesBefore";
+    private static final String FIND_ARCHIVED_DATES = "ArchivedSeat.findAllDates";
+    private static final String LOCK_SEATS = "Seat.lockByDate";
+    private static final String ARCHIVE_BOOKINGS = "ArchivedBooking.archiveByDate";
+    private static final String ARCHIVE_BOOKED_SEATS = "ArchivedSeat.archiveBookedByDate";
+    private static final String ARCHIVE_UNBOOKED_SEATS = "ArchivedSeat.archiveUnbookedByDate";
+    private static final String DELETE_BOOKING_SEATS = "ArchivedBooking.deleteBookingSeatsByDate";
+    private static final String DELETE_BOOKINGS = "Booking.deleteByDate";
+    private static final String DELETE_SEATS = "Seat.deleteByDate";
+    private static final String FIND_WITH_SEATS = "ArchivedBooking.findWithSeats";
+    private static final String FIND_SEAT_ROWS_BY_USER_ID = "ArchivedBooking.findSeatRowsByUserId";
+
+    private final EntityManager em;
+
+    public ArchiveRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * Returns the dates before the given one that still have seats in the live tables.
+     */
+    public List<LocalDateTime> findLiveDatesBefore(LocalDateTime date) {
+        return em.createNamedQuery(FIND_LIVE_DATES_BEFORE, LocalDateTime.class)
+                .setParameter("date", date)
+                .getResultList();
+    }
+
+    /**
+     * Returns every date whose seats have been archived.
+     */
+    public List<LocalDateTime> findArchivedDates() {
+        return em.createNamedQuery(FIND_ARCHIVED_DATES, LocalDateTime.class).getResultList();
+    }
+
+    /**
+     * Moves the bookings and seats of one performance from the live tables to the archive tables, with set-based
+     * statements that don't load any entities. Must be called in a transaction.
+     *
+     * @return the number of seats archived
+     */
+    public int archive(LocalDateTime date) {
+        // Write-lock the performance's seats first, so a booking for it either commits before the copy or waits until
+        // the seats have been archived (and then finds none)
+        em.createNamedQuery(LOCK_SEATS).setParameter("date", date).executeUpdate();
+        em.createNamedQuery(ARCHIVE_BOOKINGS).setParameter("date", date).executeUpdate();
+        int seats = em.createNamedQuery(ARCHIVE_BOOKED_SEATS).setParameter("date", date).executeUpdate();
+        seats += em.createNamedQuery(ARCHIVE_UNBOOKED_SEATS).setParameter("date", date).executeUpdate();
+        em.createNamedQuery(DELETE_BOOKING_SEATS).setParameter(1, date).executeUpdate();
+        em.createNamedQuery(DELETE_BOOKINGS).setParameter("date", date).executeUpdate();
+        em.createNamedQuery(DELETE_SEATS).setParameter("date", date).executeUpdate();
+        return seats;
+    }
+
+    /**
+     * Finds an archived booking by its ID, with its seats fetched in the same query.
+     *
+     * @return the booking, or null if there is no such archived booking
+     */
+    public ArchivedBooking findBookingWithSeats(long id) {
+        List<ArchivedBooking> bookings = em.createNamedQuery(FIND_WITH_SEATS, ArchivedBooking.class)
+                .setParameter("id", id)
+                .getResultList();
+        return bookings.isEmpty() ? null : bookings.get(0);
+    }
+
+    /**
+     * Streams a user's archived bookings in the same form as BookingRepository.streamSeatRows(). The stream must be
+     * closed.
+     */
+    public Stream<Object[]> streamBookingSeatRows(long userId) {
+        return em.createNamedQuery(FIND_SEAT_ROWS_BY_USER_ID, Object[].class)
+                .setParameter("userId", userId)
+                .setHint(QueryHints.HINT_FETCH_SIZE, BookingRepository.STREAM_FETCH_SIZE)
+                .getResultStream();
+    }
+}
@@ -0,0 +1,96 @@
+package proj.concert.service.repository;
+
+import org.hibernate.jpa.QueryHints;
+import proj.concert.service.domain.Booking;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Queries on bookings, using the named queries declared on {@link Booking}.
+ */
+public class BookingRepository {
+
+    // Number of rows fetched from the database at a time when streaming bookings
+    public static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String FIND_WITH_SEATS = "Booking.findWithSeats";
+    private static final String FIND_SEAT_ROWS_BY_USER_ID = "Booking.findSeatRowsByUserId";
+    private static final String FIND_ANY_ID = "Booking.findAnyId";
+    private static final String FIND_MAX_ID = "Booking.findMaxId";
+    private static final String INSERT_WITH_ID = "Booking.insertWithId";
+    private static final String INSERT_SEATS = "Booking.insertSeats";
+
+    private final EntityManager em;
+
+    public BookingRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * Finds a booking by its ID, with its seats fetched in the same query.
+     *
+     * @return the booking, or null if there is no such booking
+     */
+    public Booking findWithSeats(long id) {
+        List<Booking> bookings = em.createNamedQuery(FIND_WITH_SEATS, Booking.class)
+                .setParameter("id", id)
+                .getResultList();
+        return bookings.isEmpty() ? null : bookings.get(0);
+    }
+
+    /**
+     * Returns true if there is at least one booking, reading at most one row.
+     */
+    public boolean hasAny() {
+        return !em.createNamedQuery(FIND_ANY_ID, Long.class).setMaxResults(1).getResultList().isEmpty();
+    }
+
+    /**
+     * Returns the highest booking ID, or 0 if there are no bookings.
+     */
+    public long findMaxId() {
+        Long max = em.createNamedQuery(FIND_MAX_ID, Long.class).getSingleResult();
+        return max == null ? 0 : max;
+    }
+
+    /**
+     * Inserts a booking of the seats with the given labels under the given ID, in two statements and without loading
+     * anything. Used to restore a booking that was made earlier; the seats must already be marked as booked. Call
+     * {@link #restartIds()} once done, so new bookings don't reuse the IDs.
+     */
+    public void insertWithId(long id, long concertId, LocalDateTime date, long userId, Collection<String> labels) {
+        em.createNamedQuery(INSERT_WITH_ID)
+                .setParameter("id", id)
+                .setParameter("concertId", concertId)
+                .setParameter("date", date)
+                .setParameter("userId", userId)
+                .executeUpdate();
+        em.createNamedQuery(INSERT_SEATS)
+                .setParameter("id", id)
+                .setParameter("date", date)
+                .setParameter("labels", labels)
+                .executeUpdate();
+    }
+
+    /**
+     * Moves the booking ID column on, so that the next booking's ID is above every existing one.
+     */
+    public void restartIds() {
+        em.createNativeQuery("ALTER TABLE Booking ALTER COLUMN id RESTART WITH " + (findMaxId() + 1)).executeUpdate();
+    }
+
+    /**
+     * Streams a user's bookings as one row per booked seat, ordered by booking. Each row holds the booking ID, concert
+     * ID, date, seat label and seat price. The stream must be closed.
+     */
+    public Stream<Object[]> streamSeatRows(long userId) {
+        return em.createNamedQuery(FIND_SEAT_ROWS_BY_USER_ID, Object[].class)
+                .setParameter("userId", userId)
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream();
+    }
+}
@@ -0,0 +1,204 @@
+package proj.concert.service.repository;
+
+import org.hibernate.jpa.QueryHints;
+import proj.concert.common.dto.ConcertDTO;
+import proj.concert.common.dto.ConcertSummaryDTO;
+import proj.concert.common.dto.PerformerDTO;
+import proj.concert.common.types.Genre;
+import proj.concert.service.domain.Concert;
+import proj.concert.service.jaxrs.CatalogQueryParams;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queries on concerts, using the named queries declared on {@link Concert}.
+ * <p>
+ * The page queries are cached in the query cache. A filtered page query depends on which filters are given, so it is
+ * built when needed (Hibernate still caches its compiled plan); unfiltered pages, the common case, use named queries.
+ */
+public class ConcertRepository {
+
+    private static final String COUNT = "Concert.count";
+    private static final String FIND_ALL_DATES = "Concert.findAllDates";
+    private static final String FIND_ALL_WITH_PERFORMERS = "Concert.findAllWithPerformers";
+    private static final String FIND_IDS_BY_PERFORMERS = "Concert.findIdsByPerformers";
+    private static final String FIND_ID_PAGE = "Concert.findIdPage";
+    private static final String FIND_SUMMARY_PAGE = "Concert.findSummaryPage";
+    private static final String FIND_PERFORMER_ROWS = "Concert.findPerformerRows";
+    private static final String FIND_DATE_ROWS = "Concert.findDateRows";
+
+    private final EntityManager em;
+
+    public ConcertRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * Finds a concert by its ID, through the second-level cache.
+     *
+     * @return the concert, or null if there is no such concert
+     */
+    public Concert find(long id) {
+        return em.find(Concert.class, id);
+    }
+
+    public long count() {
+        return em.createNamedQuery(COUNT, Long.class).getSingleResult();
+    }
+
+    /**
+     * Returns every date on which any concert is held.
+     */
+    public List<LocalDateTime> findAllDates() {
+        return em.createNamedQuery(FIND_ALL_DATES, LocalDateTime.class).getResultList();
+    }
+
+    /**
+     * Returns every concert, with its performers fetched.
+     */
+    public List<Concert> findAllWithPerformers() {
+        return em.createNamedQuery(FIND_ALL_WITH_PERFORMERS, Concert.class).getResultList();
+    }
+
+    /**
+     * Returns the IDs of the concerts featuring any of the given performers.
+     */
+    public List<Long> findIdsByPerformers(Collection<Long> performerIds) {
+        return em.createNamedQuery(FIND_IDS_BY_PERFORMERS, Long.class)
+                .setParameter("ids", performerIds)
+                .getResultList();
+    }
+
+    /**
+     * Returns the IDs of the concerts after the keyset cursor that match the given filters, in order.
+     *
+     * @param maxResults the maximum number of IDs to return
+     */
+    public List<Long> findIds(CatalogQueryParams params, int maxResults) {
+        TypedQuery<Long> query = isFiltered(params)
+                ? em.createQuery("SELECT c.id FROM Concert c" + filterClause(params) + " ORDER BY c.id", Long.class)
+                : em.createNamedQuery(FIND_ID_PAGE, Long.class);
+        return pageOf(query, params, maxResults);
+    }
+
+    /**
+     * Returns summaries of the concerts after the keyset cursor that match the given filters, in order. The summary
+     * columns are projected straight into DTOs, so one row is read per concert and no entities are loaded.
+     *
+     * @param maxResults the maximum number of summaries to return
+     */
+    public List<ConcertSummaryDTO> findSummaries(CatalogQueryParams params, int maxResults) {
+        TypedQuery<ConcertSummaryDTO> query = isFiltered(params)
+                ? em.createQuery("SELECT new proj.concert.common.dto.ConcertSummaryDTO(c.id, c.title, c.imageName)"
+                        + " FROM Concert c" + filterClause(params) + " ORDER BY c.id", ConcertSummaryDTO.class)
+                : em.createNamedQuery(FIND_SUMMARY_PAGE, ConcertSummaryDTO.class);
+        return pageOf(query, params, maxResults);
+    }
+
+    /**
+     * Loads concerts together with their performers and dates, using one query per collection.
+     * Join fetching both collections in a single query would return performers x dates rows per concert; querying them
+     * separately keeps the rows read linear in the size of the data.
+     * Both queries select plain columns, which are assembled straight into DTOs, so no Concert or Performer entities
+     * are created or tracked by the persistence context.
+     *
+     * @param ids IDs of the concerts to load
+     * @return list of ConcertDTOs, ordered by ID, with performers and dates populated
+     */
+    public List<ConcertDTO> findDtos(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // One row per concert and performer (or just the concert, if it has no performers)
+        Map<Long, ConcertDTO> concerts = new LinkedHashMap<>();
+        for (Object[] row : em.createNamedQuery(FIND_PERFORMER_ROWS, Object[].class)
+                .setParameter("ids", ids).getResultList()) {
+            ConcertDTO concert = concerts.computeIfAbsent((Long) row[0],
+                    concertId -> new ConcertDTO(concertId, (String) row[1], (String) row[2], (String) row[3]));
+            if (row[4] != null) {
+                concert.getPerformers().add(new PerformerDTO(
+                        (Long) row[4], (String) row[5], (String) row[6], (Genre) row[7], (String) row[8]));
+            }
+        }
+        if (concerts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // One row per concert and date
+        for (Object[] row : em.createNamedQuery(FIND_DATE_ROWS, Object[].class)
+                .setParameter("ids", ids).getResultList()) {
+            concerts.get((Long) row[0]).getDates().add((LocalDateTime) row[1]);
+        }
+
+        return new ArrayList<>(concerts.values());
+    }
+
+    /**
+     * Binds the cursor and filters to a page query, and runs it through the query cache.
+     */
+    private static <T> List<T> pageOf(TypedQuery<T> query, CatalogQueryParams params, int maxResults) {
+        bindFilter(query, params);
+        query.setMaxResults(maxResults);
+        query.setHint(QueryHints.HINT_CACHEABLE, true);
+        return query.getResultList();
+    }
+
+    private static boolean isFiltered(CatalogQueryParams params) {
+        return params.getGenre() != null || params.getPerformerId() != null
+                || params.getFrom() != null || params.getTo() != null;
+    }
+
+    /**
+     * Builds the WHERE clause selecting concerts (aliased "c") after the keyset cursor that match the given filters.
+     * Each filter is a subquery on the concert ID, backed by the indexes on performer genre, the concert_performer
+     * join table and concert dates.
+     */
+    private static String filterClause(CatalogQueryParams params) {
+        StringBuilder where = new StringBuilder(" WHERE c.id > :after");
+        if (params.getGenre() != null) {
+            where.append(" AND c.id IN (SELECT gc.id FROM Concert gc JOIN gc.performers gp WHERE gp.genre = :genre)");
+        }
+        if (params.getPerformerId() != null) {
+            where.append(" AND c.id IN (SELECT pc.id FROM Concert pc JOIN pc.performers pp WHERE pp.id = :performerId)");
+        }
+        if (params.getFrom() != null || params.getTo() != null) {
+            List<String> range = new ArrayList<>();
+            if (params.getFrom() != null) {
+                range.add("d >= :from");
+            }
+            if (params.getTo() != null) {
+                range.add("d <= :to");
+            }
+            where.append(" AND c.id IN (SELECT dc.id FROM Concert dc JOIN dc.dates d WHERE ")
+                    .append(String.join(" AND ", range)).append(")");
+        }
+        return where.toString();
+    }
+
+    /**
+     * Binds the parameters used by the clause built in filterClause.
+     */
+    private static void bindFilter(TypedQuery<?> query, CatalogQueryParams params) {
+        query.setParameter("after", params.getAfter());
+        if (params.getGenre() != null) {
+            query.setParameter("genre", params.getGenre());
+        }
+        if (params.getPerformerId() != null) {
+            query.setParameter("performerId", params.getPerformerId());
+        }
+        if (params.getFrom() != null) {
+            query.setParameter("from", params.getFrom());
+        }
+        if (params.getTo() != null) {
+            query.setParameter("to", params.getTo());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package proj.concert.service.repository;
+
+import org.hibernate.jpa.QueryHints;
+import proj.concert.common.dto.PerformerDTO;
+import proj.concert.common.types.Genre;
+import proj.concert.service.domain.Performer;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+/**
+ * Queries on performers, using the named queries declared on {@link Performer}.
+ */
+public class PerformerRepository {
+
+    private static final String FIND_DTO_PAGE = "Performer.findDtoPage";
+    private static final String FIND_DTO_PAGE_BY_GENRE = "Performer.findDtoPageByGenre";
+
+    private final EntityManager em;
+
+    public PerformerRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * Finds a performer by their ID, through the second-level cache.
+     *
+     * @return the performer, or null if there is no such performer
+     */
+    public Performer find(Long id) {
+        return em.find(Performer.class, id);
+    }
+
+    /**
+     * Returns the performers after the keyset cursor, in order, optionally restricted to a genre. The columns are
+     * projected straight into DTOs, so no Performer entities are loaded, and results come from the query cache.
+     *
+     * @param after the ID of the last performer on the previous page
+     * @param genre the genre to restrict to, or null for all genres
+     * @param maxResults the maximum number of performers to return
+     */
+    public List<PerformerDTO> findDtos(long after, Genre genre, int maxResults) {
+        TypedQuery<PerformerDTO> query;
+        if (genre == null) {
+            query = em.createNamedQuery(FIND_DTO_PAGE, PerformerDTO.class);
+        } else {
+            query = em.createNamedQuery(FIND_DTO_PAGE_BY_GENRE, PerformerDTO.class);
+            query.setParameter("genre", genre);
+        }
+        query.setParameter("after", after);
+        query.setMaxResults(maxResults);
+        query.setHint(QueryHints.HINT_CACHEABLE, true);
+        return query.getResultList();
+    }
+}
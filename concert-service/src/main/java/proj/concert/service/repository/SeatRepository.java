@@ -0,0 +1,142 @@
+package proj.concert.service.repository;
+
+import org.hibernate.jpa.QueryHints;
+import proj.concert.common.dto.AvailabilityDTO;
+import proj.concert.common.dto.PriceBandAvailabilityDTO;
+import proj.concert.common.dto.SeatDTO;
+import proj.concert.common.types.BookingStatus;
+import proj.concert.service.domain.Seat;
+import proj.concert.service.util.TheatreLayout;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Queries on seats, using the named queries declared on {@link Seat}.
+ */
+public class SeatRepository {
+
+    // Number of rows fetched from the database at a time when streaming seats
+    public static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String FIND_BY_DATE_AND_LABELS = "Seat.findByDateAndLabels";
+    private static final String FIND_DTOS_BY_DATE = "Seat.findDtosByDate";
+    private static final String FIND_DTOS_BY_DATE_AND_STATUS = "Seat.findDtosByDateAndStatus";
+    private static final String COUNT_BY_DATE = "Seat.countByDate";
+    private static final String COUNT_BY_DATE_AND_STATUS = "Seat.countByDateAndStatus";
+    private static final String COUNT_BY_DATES_AND_PRICE = "Seat.countByDatesAndPrice";
+    private static final String FIND_ALL_DATES = "Seat.findAllDates";
+    private static final String FIND_BOOKED_LABELS = "Seat.findBookedLabels";
+
+    private final EntityManager em;
+
+    public SeatRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * Returns the seats with the given labels on a date, in a single query. Labels that don't match a seat are
+     * ignored, so the result is smaller than the labels if any are missing.
+     */
+    public List<Seat> findByDateAndLabels(LocalDateTime date, Collection<String> labels) {
+        return em.createNamedQuery(FIND_BY_DATE_AND_LABELS, Seat.class)
+                .setParameter("date", date)
+                .setParameter("labels", labels)
+                .getResultList();
+    }
+
+    /**
+     * Streams the seats on a date, filtered by booking status, projected straight into DTOs so that no Seat entities
+     * are loaded. The stream must be closed.
+     *
+     * @param status 'Any', or 'Booked' / 'Unbooked' to filter by booking status
+     */
+    public Stream<SeatDTO> streamDtos(LocalDateTime date, BookingStatus status) {
+        TypedQuery<SeatDTO> query;
+        if (status == BookingStatus.Any) {
+            query = em.createNamedQuery(FIND_DTOS_BY_DATE, SeatDTO.class);
+        } else {
+            query = em.createNamedQuery(FIND_DTOS_BY_DATE_AND_STATUS, SeatDTO.class);
+            query.setParameter("booked", status == BookingStatus.Booked);
+        }
+        query.setParameter("date", date);
+        query.setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE);
+        return query.getResultStream();
+    }
+
+    /**
+     * Counts the seats on a date, filtered by booking status.
+     *
+     * @param status 'Any', or 'Booked' / 'Unbooked' to filter by booking status
+     */
+    public long count(LocalDateTime date, BookingStatus status) {
+        TypedQuery<Long> query;
+        if (status == BookingStatus.Any) {
+            query = em.createNamedQuery(COUNT_BY_DATE, Long.class);
+        } else {
+            query = em.createNamedQuery(COUNT_BY_DATE_AND_STATUS, Long.class);
+            query.setParameter("booked", status == BookingStatus.Booked);
+        }
+        return query.setParameter("date", date).getSingleResult();
+    }
+
+    /**
+     * Counts the seats of each of the given dates, in total and booked, by price band, in a single grouped query.
+     * Dates without seats are left out.
+     *
+     * @return the availability of each date, ordered by date, with price bands from the most expensive
+     */
+    public List<AvailabilityDTO> findAvailability(Collection<LocalDateTime> dates) {
+        List<AvailabilityDTO> availability = new ArrayList<>();
+        if (dates.isEmpty()) {
+            return availability;
+        }
+        List<Object[]> rows = em.createNamedQuery(COUNT_BY_DATES_AND_PRICE, Object[].class)
+                .setParameter("dates", dates)
+                .getResultList();
+        AvailabilityDTO current = null;
+        for (Object[] row : rows) {
+            LocalDateTime date = (LocalDateTime) row[0];
+            if (current == null || !current.getDate().equals(date)) {
+                current = new AvailabilityDTO(date, new ArrayList<>());
+                availability.add(current);
+            }
+            BigDecimal price = (BigDecimal) row[1];
+            current.getPriceBands().add(new PriceBandAvailabilityDTO(TheatreLayout.priceBandNameFor(price), price,
+                    ((Number) row[2]).intValue(), ((Number) row[3]).intValue()));
+        }
+        return availability;
+    }
+
+    /**
+     * Returns every date that has seats.
+     */
+    public List<LocalDateTime> findAllDates() {
+        return em.createNamedQuery(FIND_ALL_DATES, LocalDateTime.class).getResultList();
+    }
+
+    /**
+     * Returns the booked seats of every date that has any, as bitmaps of seat indexes (see TheatreLayout.indexOf), read
+     * in a single query.
+     */
+    public Map<LocalDateTime, BitSet> findBookedSeats() {
+        Map<LocalDateTime, BitSet> bookedSeats = new HashMap<>();
+        try (Stream<Object[]> rows = em.createNamedQuery(FIND_BOOKED_LABELS, Object[].class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(row -> bookedSeats
+                    .computeIfAbsent((LocalDateTime) row[0], d -> new BitSet(TheatreLayout.NUM_SEATS_IN_THEATRE))
+                    .set(TheatreLayout.indexOf((String) row[1])));
+        }
+        return bookedSeats;
+    }
+}
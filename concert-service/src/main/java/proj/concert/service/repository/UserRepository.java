@@ -0,0 +1,32 @@
+package proj.concert.service.repository;
+
+import proj.concert.service.domain.User;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Queries on users, using the named queries declared on {@link User}.
+ */
+public class UserRepository {
+
+    private static final String FIND_BY_USERNAME = "User.findByUsername";
+
+    private final EntityManager em;
+
+    public UserRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * Finds a user by their username.
+     *
+     * @return the user, or null if there is no such user
+     */
+    public User findByUsername(String username) {
+        List<User> users = em.createNamedQuery(FIND_BY_USERNAME, User.class)
+                .setParameter("username", username)
+                .getResultList();
+        return users.isEmpty() ? null : users.get(0);
+    }
+}
@@ -0,0 +1,287 @@
+package proj.concert.service.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import proj.concert.common.dto.ConcertSummaryDTO;
+import proj.concert.service.domain.Concert;
+import proj.concert.service.domain.Performer;
+import proj.concert.service.repository.ConcertRepository;
+import proj.concert.service.services.PersistenceManager;
+
+import javax.persistence.EntityManager;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Singleton in-memory inverted index over the concert catalog, used to answer full-text searches without querying the
+ * database.
+ * <p>
+ * Each concert is indexed under the terms in its title and blurb, and in the names, blurbs and genres of its
+ * performers. Text is split on anything that isn't a letter or digit, case-folded and stripped of accents. Terms are
+ * kept sorted, so a query word matches every term it is a prefix of (e.g. "mend" matches "mendes"). Terms from
+ * titles and performer names are weighted more heavily than those from blurbs, and whole-word matches more heavily
+ * than prefix matches.
+ * <p>
+ * The index is built from the database on first use. After that, changes are applied incrementally: the
+ * {@link CatalogSearchListener} marks the concerts and performers that are changed, and only those concerts are
+ * reloaded and reindexed before the next search. {@link #invalidate()} discards the whole index.
+ */
+public class CatalogSearchIndex {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(CatalogSearchIndex.class);
+
+    private static final CatalogSearchIndex instance = new CatalogSearchIndex();
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    private static final int TITLE_WEIGHT = 8;
+    private static final int PERFORMER_NAME_WEIGHT = 6;
+    private static final int GENRE_WEIGHT = 3;
+    private static final int BLURB_WEIGHT = 1;
+    // Prefix matches score a fraction of a whole-word match
+    private static final int PREFIX_DIVISOR = 2;
+
+    // Term -> concert ID -> weight of the term in that concert
+    private final ConcurrentNavigableMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+    // Concert ID -> summary returned in results, and the terms it is indexed under (so it can be removed)
+    private final ConcurrentMap<Long, IndexedConcert> concerts = new ConcurrentHashMap<>();
+
+    private final Set<Long> changedConcerts = new HashSet<>();
+    private final Set<Long> changedPerformers = new HashSet<>();
+    private volatile boolean built;
+    // True if there are changes to apply, so searches can skip the lock when the index is up to date
+    private volatile boolean changed;
+
+    protected CatalogSearchIndex() {
+    }
+
+    public static CatalogSearchIndex instance() {
+        return instance;
+    }
+
+    /**
+     * Searches the catalog.
+     * Every word in the query must match (as a whole word or a prefix) somewhere in a concert for it to be returned.
+     *
+     * @param query the search text
+     * @param limit the maximum number of results to return
+     * @return the matching concerts, best match first (ties are broken by concert ID)
+     */
+    public List<ConcertSummaryDTO> search(String query, int limit) {
+        if (!built || changed) {
+            refresh();
+        }
+
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, Integer> scores = null;
+        for (String word : new LinkedHashSet<>(words)) {
+            Map<Long, Integer> wordScores = scoreWord(word);
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                // Keep only concerts matching every word so far
+                scores.keySet().retainAll(wordScores.keySet());
+                for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+                    entry.setValue(entry.getValue() + wordScores.get(entry.getKey()));
+                }
+            }
+            if (scores.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        final Map<Long, Integer> finalScores = scores;
+        List<Long> ids = new ArrayList<>(finalScores.keySet());
+        ids.sort(Comparator.comparing((Long id) -> finalScores.get(id)).reversed().thenComparing(id -> id));
+
+        List<ConcertSummaryDTO> results = new ArrayList<>();
+        for (Long id : ids) {
+            IndexedConcert indexed = concerts.get(id);
+            if (indexed != null) {
+                results.add(indexed.summary);
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Records that a concert has been added, changed or removed, so it is reindexed before the next search.
+     */
+    public synchronized void concertChanged(Long concertId) {
+        changedConcerts.add(concertId);
+        changed = true;
+    }
+
+    /**
+     * Records that a performer has been added, changed or removed, so their concerts are reindexed before the next
+     * search.
+     */
+    public synchronized void performerChanged(Long performerId) {
+        changedPerformers.add(performerId);
+        changed = true;
+    }
+
+    /**
+     * Discards the index, so that it is rebuilt from the database before the next search. Must be called if the
+     * catalog is changed other than through an EntityManager (e.g. when the database is reset).
+     */
+    public synchronized void invalidate() {
+        built = false;
+        postings.clear();
+        concerts.clear();
+        changedConcerts.clear();
+        changedPerformers.clear();
+        changed = false;
+    }
+
+    /**
+     * Builds the index if needed, and reindexes any concerts changed since the last search.
+     */
+    private synchronized void refresh() {
+        if (built && !changed) {
+            return;
+        }
+
+        EntityManager em = PersistenceManager.instance().createReadOnlyEntityManager();
+        try {
+            ConcertRepository concertRepository = new ConcertRepository(em);
+            if (!built) {
+                List<Concert> all = concertRepository.findAllWithPerformers();
+                for (Concert concert : all) {
+                    index(concert);
+                }
+                built = true;
+                LOGGER.debug("refresh(): Indexed " + all.size() + " concerts under " + postings.size() + " terms");
+            } else {
+                Set<Long> ids = new HashSet<>(changedConcerts);
+                if (!changedPerformers.isEmpty()) {
+                    ids.addAll(concertRepository.findIdsByPerformers(changedPerformers));
+                }
+                for (Long id : ids) {
+                    remove(id);
+                    Concert concert = concertRepository.find(id);
+                    if (concert != null) {
+                        index(concert);
+                    }
+                }
+                LOGGER.debug("refresh(): Reindexed " + ids.size() + " concerts");
+            }
+            changedConcerts.clear();
+            changedPerformers.clear();
+            changed = false;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Adds a concert, with its performers, to the index.
+     */
+    private void index(Concert concert) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, concert.getTitle(), TITLE_WEIGHT);
+        addTerms(terms, concert.getBlurb(), BLURB_WEIGHT);
+        for (Performer performer : concert.getPerformers()) {
+            addTerms(terms, performer.getName(), PERFORMER_NAME_WEIGHT);
+            addTerms(terms, performer.getBlurb(), BLURB_WEIGHT);
+            if (performer.getGenre() != null) {
+                String genre = performer.getGenre().name();
+                // Index both the whole genre and its words, so "RhythmAndBlues" is found by "rhythm" or "blues"
+                addTerms(terms, genre, GENRE_WEIGHT);
+                addTerms(terms, genre.replaceAll("(?<=[a-z])(?=[A-Z])", " "), GENRE_WEIGHT);
+            }
+        }
+
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new ConcurrentHashMap<>())
+                    .put(concert.getId(), term.getValue());
+        }
+        concerts.put(concert.getId(), new IndexedConcert(
+                new ConcertSummaryDTO(concert.getId(), concert.getTitle(), concert.getImageName()), terms.keySet()));
+    }
+
+    /**
+     * Removes a concert from the index, if present.
+     */
+    private void remove(Long concertId) {
+        IndexedConcert indexed = concerts.remove(concertId);
+        if (indexed == null) {
+            return;
+        }
+        for (String term : indexed.terms) {
+            postings.computeIfPresent(term, (t, ids) -> {
+                ids.remove(concertId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Scores every concert matching a single query word, as a whole term or a prefix of one.
+     */
+    private Map<Long, Integer> scoreWord(String word) {
+        Map<Long, Integer> scores = new HashMap<>();
+        // All terms starting with the word sort between the word itself and the word followed by the highest char
+        for (Map.Entry<String, Map<Long, Integer>> term
+                : postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+            boolean exact = term.getKey().equals(word);
+            for (Map.Entry<Long, Integer> posting : term.getValue().entrySet()) {
+                int score = exact ? posting.getValue() : Math.max(1, posting.getValue() / PREFIX_DIVISOR);
+                scores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Adds the terms in the given text to the map, keeping the highest weight seen for each term.
+     */
+    private static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Math::max);
+        }
+    }
+
+    /**
+     * Splits text into lower-case, accent-free words of letters and digits.
+     *
+     * @param text the text to split; may be null
+     * @return the words, in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        for (String token : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static class IndexedConcert {
+        final ConcertSummaryDTO summary;
+        final Set<String> terms;
+
+        IndexedConcert(ConcertSummaryDTO summary, Set<String> terms) {
+            this.summary = summary;
+            this.terms = terms;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package proj.concert.service.search;
+
+import proj.concert.service.domain.Concert;
+import proj.concert.service.domain.Performer;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener for {@link Concert} and {@link Performer} that tells the {@link CatalogSearchIndex} which
+ * concerts and performers to reindex. Only IDs are recorded here; the entities are reloaded when the index is next
+ * searched.
+ * <p>
+ * Note that JPA doesn't report changes made only to an entity's collections (e.g. adding a date to a concert). Code
+ * that does so should call {@link CatalogSearchIndex#concertChanged(Long)} itself.
+ */
+public class CatalogSearchListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void catalogChanged(Object entity) {
+        if (entity instanceof Concert) {
+            CatalogSearchIndex.instance().concertChanged(((Concert) entity).getId());
+        } else if (entity instanceof Performer) {
+            CatalogSearchIndex.instance().performerChanged(((Performer) entity).getId());
+        }
+    }
+}
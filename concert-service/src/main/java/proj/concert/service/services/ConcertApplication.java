@@ -3,6 +3,11 @@ package proj.concert.service.services;
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.core.Application;
 
+import proj.concert.service.archive.PerformanceArchiver;
+import proj.concert.service.auth.AuthTokens;
+import proj.concert.service.jaxrs.AuthFilter;
+import proj.concert.service.jaxrs.EntityManagerFilter;
+import proj.concert.service.journal.SeatSnapshotter;
 import proj.concert.service.util.ConcertUtils;
 
 import java.util.HashSet;
@@ -21,8 +26,16 @@ public class ConcertApplication extends Application {
     public ConcertApplication() {
         classes.add(TestResource.class);
         classes.add(ConcertResource.class);
+        classes.add(MetricsResource.class);
+        classes.add(AuthFilter.class);
+        classes.add(EntityManagerFilter.class);
+        // Fail the deployment now if the auth token key is misconfigured
+        AuthTokens.instance();
         singleton.add(PersistenceManager.instance());
         ConcertUtils.initConcerts();
+        ConcertUtils.replayBookingJournal();
+        SeatSnapshotter.instance().start();
+        PerformanceArchiver.instance().start();
     }
 
     @Override
@@ -5,26 +5,55 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import proj.concert.common.dto.*;
 import proj.concert.common.types.BookingStatus;
+import proj.concert.service.auth.AuthTokens;
+import proj.concert.service.auth.LoginThrottle;
+import proj.concert.service.auth.UserPrincipal;
+import proj.concert.service.cache.BookedSeatsCache;
+import proj.concert.service.cache.CatalogResponseCache;
+import proj.concert.service.cache.CatalogResponseCache.CachedResponse;
+import proj.concert.service.cache.SeatAvailabilityVersions;
 import proj.concert.service.domain.*;
+import proj.concert.service.jaxrs.AuthFilter;
+import proj.concert.service.jaxrs.CatalogQueryParams;
+import proj.concert.service.jaxrs.JsonArrayStreamingOutput;
+import proj.concert.service.journal.BookingJournal;
+import proj.concert.service.repository.ArchiveRepository;
+import proj.concert.service.repository.BookingRepository;
+import proj.concert.service.repository.ConcertRepository;
+import proj.concert.service.repository.PerformerRepository;
+import proj.concert.service.repository.SeatRepository;
+import proj.concert.service.repository.UserRepository;
+import proj.concert.service.search.CatalogSearchIndex;
+import proj.concert.service.util.Page;
 
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
-import javax.persistence.TypedQuery;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
-import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.UriInfo;
 import java.awt.print.Book;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -35,7 +64,6 @@ import static proj.concert.service.mapper.ConcertMapper.toConcertDomainModel;
 import static proj.concert.service.mapper.ConcertMapper.toConcertDto;
 import static proj.concert.service.mapper.PerformerMapper.toPerformerDomainModel;
 import static proj.concert.service.mapper.PerformerMapper.toPerformerDto;
-import static proj.concert.service.mapper.ConcertSummaryMapper.toConcertSummaryDTO;
 
 @Path("/concert-service")
 @Produces({MediaType.APPLICATION_JSON})
@@ -58,173 +86,220 @@ public class ConcertResource {
 
     /**
      * Retrieves a concert by its ID, including its performers (eagerly loaded) and dates (initialized).
+     * The serialized response is served from the catalog response cache, and a 304 is returned if the client already
+     * holds the current version (If-None-Match).
      * If the concert does not exist, responds with NOT_FOUND.
      * Returns a ConcertDTO as a JSON response.
      */
     @GET
     @Path("/concerts/{id}")
-    public Response retrieveConcert(@PathParam("id") long id) {
-        EntityManager em = PersistenceManager.instance().createEntityManager();
+    public Response retrieveConcert(@PathParam("id") long id, @Context Request request) {
+        CachedResponse cached = CatalogResponseCache.instance().get("concerts/" + id, () -> loadConcert(id));
+        if (cached == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return cached.toResponse(request);
+    }
+
+    /**
+     * Retrieves the seat availability of every date of a concert: the total, booked and remaining seats, overall and
+     * by price band. The seats are counted for all the dates at once, in a single grouped query.
+     * If the concert does not exist, responds with NOT_FOUND.
+     * Returns a list of AvailabilityDTOs, ordered by date, as a JSON response.
+     */
+    @GET
+    @Path("/concerts/{id}/availability")
+    public Response getAvailability(@PathParam("id") long id) {
+        EntityManager em = EntityManagerScope.current();
+        Concert concert = new ConcertRepository(em).find(id);
+        if (concert == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        List<AvailabilityDTO> availability = new SeatRepository(em).findAvailability(concert.getDates());
+        return Response.ok(availability).build();
+    }
+
+    /**
+     * Retrieves everything the booking page for a performance needs in one response: the concert, whether it plays on
+     * the given date, and the labels of the seats already booked for that date.
+     * The concert is read through the second-level cache, and the booked seats through the booked seats cache, which
+     * is only reloaded after a booking for the date commits.
+     * The response's ETag combines the catalog version and the date's seat availability version, so a 304 is returned,
+     * without loading anything, if the client already holds the current page (If-None-Match).
+     * If the date can't be parsed, responds with BAD_REQUEST; if the concert does not exist, with NOT_FOUND.
+     * Returns a BookingPageDTO as a JSON response.
+     */
+    @GET
+    @Path("/performances/{concertId}/{date}/page")
+    public Response getBookingPage(@PathParam("concertId") long concertId, @PathParam("date") String dateStr,
+                                   @Context Request request) {
+        LocalDateTime date;
         try {
-            TypedQuery<Concert> query = em.createQuery(
-                    "SELECT c FROM Concert c LEFT JOIN FETCH c.performers LEFT JOIN FETCH c.dates WHERE c.id = :id", Concert.class);
-            query.setParameter("id", id);
-            List<Concert> concerts = query.getResultList();
-
-            if (concerts.isEmpty()) {
-                em.close();
-                return Response.status(Response.Status.NOT_FOUND).build();
+            date = LocalDateTime.parse(dateStr);
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        // Read the versions before loading, so a change committed mid-load can only make the tag stale, never wrong
+        SeatAvailabilityVersions versions = SeatAvailabilityVersions.instance();
+        EntityTag etag = new EntityTag(CatalogResponseCache.instance().getCatalogVersion() + "-"
+                + versions.etagFor(BookingStatus.Booked, versions.getVersion(date)).getValue());
+        if (request != null) {
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+            if (notModified != null) {
+                return notModified.build();
             }
+        }
 
-            Concert concert = concerts.get(0);
-            ConcertDTO concertDTO = toConcertDto(concert);
-            return Response.ok(concertDTO).build();
-        } finally {
-            em.close();
+        ConcertDTO concert = loadConcert(concertId);
+        if (concert == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
         }
+        boolean validDate = concert.getDates().contains(date);
+        List<String> bookedSeats = validDate
+                ? BookedSeatsCache.instance().get(date, () -> loadBookedSeatLabels(date))
+                : Collections.emptyList();
+        return Response.ok(new BookingPageDTO(concert, date, validDate, bookedSeats)).tag(etag).build();
     }
 
     /**
-     * Retrieves all concerts from the database, including their associated performers and dates.
-     * Uses a single optimized query with LEFT JOIN FETCH to avoid the N+1 select problem and improve performance.
-     * Returns a list of ConcertDTOs as a JSON response.
+     * Retrieves a page of concerts, including their associated performers and dates, ordered by ID.
+     * Supports keyset pagination (after, limit) and filtering by genre, performer and date range (see
+     * CatalogQueryParams). If there are more results, a Link header with rel="next" gives the next page's URI.
+     * The serialized response is served from the catalog response cache (see retrieveConcert).
+     * Returns a list of ConcertDTOs as a JSON response, or BAD_REQUEST if the limit is not positive.
      */
     @GET
     @Path("/concerts")
-    public Response getAllConcerts() {
-        List<ConcertDTO> concertDTOS = new ArrayList<>();
-        EntityManager em = PersistenceManager.instance().createEntityManager();
-        try {
-            // Use LEFT JOIN FETCH to load performers and dates for each concert in a single query
-            // DISTINCT is used to avoid duplicate Concerts in the result due to the joins
-            TypedQuery<Concert> concertQuery = em.createQuery(
-                "SELECT DISTINCT c FROM Concert c LEFT JOIN FETCH c.performers LEFT JOIN FETCH c.dates", Concert.class);
-            List<Concert> concerts = concertQuery.getResultList();
-            for (Concert c : concerts) {
-                concertDTOS.add(toConcertDto(c));
-            }
-        } finally {
-            em.close();
+    public Response getAllConcerts(@BeanParam CatalogQueryParams params,
+                                   @Context Request request,
+                                   @Context UriInfo uriInfo) {
+        if (!params.isValid()) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
         }
-        return Response.ok(concertDTOS).build();
+        CachedResponse cached = CatalogResponseCache.instance().get(
+                "concerts?" + params.toCacheKey(), () -> loadConcertPage(params));
+        return toPageResponse(cached, request, uriInfo);
     }
 
     /**
-     * Retrieves summary information for all concerts, including their performers and dates.
-     * Uses a JOIN FETCH query to efficiently load concerts, performers, and dates in a single call.
-     * Returns a list of ConcertSummaryDTOs as a JSON response.
+     * Retrieves a page of concert summaries, ordered by ID.
+     * Accepts the same pagination and filter parameters as getAllConcerts.
+     * The serialized response is served from the catalog response cache (see retrieveConcert).
+     * Returns a list of ConcertSummaryDTOs as a JSON response, or BAD_REQUEST if the limit is not positive.
      */
     @GET
     @Path("/concerts/summaries")
-    public Response getSummaries() {
-        List<ConcertSummaryDTO> concertSummaryDTOS = new ArrayList<>();
-        EntityManager em = PersistenceManager.instance().createEntityManager();
-        try {
-            // Use JOIN FETCH to eagerly load performers and dates for each concert in a single query
-            TypedQuery<Concert> concertQuery = em.createQuery(
-                "SELECT DISTINCT c FROM Concert c LEFT JOIN FETCH c.performers LEFT JOIN FETCH c.dates", Concert.class);
-            List<Concert> concerts = concertQuery.getResultList();
-            for (Concert c : concerts) {
-                concertSummaryDTOS.add(toConcertSummaryDTO(c));
-            }
-        } finally {
-            em.close();
+    public Response getSummaries(@BeanParam CatalogQueryParams params,
+                                 @Context Request request,
+                                 @Context UriInfo uriInfo) {
+        if (!params.isValid()) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        CachedResponse cached = CatalogResponseCache.instance().get(
+                "concerts/summaries?" + params.toCacheKey(), () -> loadSummaryPage(params));
+        return toPageResponse(cached, request, uriInfo);
+    }
+
+    /**
+     * Searches concerts by title, blurb, and the names, blurbs and genres of their performers.
+     * Every word in the query must match a word (or the start of one) in the concert. Results are ranked by relevance
+     * and served from the in-memory search index, without querying the database.
+     * Returns a list of ConcertSummaryDTOs as a JSON response, or BAD_REQUEST if there is no query or the limit is not
+     * positive.
+     */
+    @GET
+    @Path("/search")
+    public Response search(@QueryParam("q") String query, @QueryParam("limit") Integer limit) {
+        if (query == null || query.trim().isEmpty() || (limit != null && limit <= 0)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
         }
-        return Response.ok(concertSummaryDTOS).build();
+        int maxResults = limit == null ? CatalogSearchIndex.DEFAULT_LIMIT : Math.min(limit, CatalogQueryParams.MAX_LIMIT);
+        return Response.ok(CatalogSearchIndex.instance().search(query, maxResults)).build();
     }
 
     /**
-     * Retrieves a performer by their ID, including all concerts they are associated with.
-     * Uses a JOIN FETCH query to efficiently load the performer and their concerts in a single call.
+     * Retrieves a performer by their ID.
+     * The serialized response is served from the catalog response cache (see retrieveConcert).
      * If the performer does not exist, responds with NOT_FOUND.
      * Returns a PerformerDTO as a JSON response.
      */
     @GET
     @Path("/performers/{id}")
-    public Response getPerformer(@PathParam("id") Long id) {
-        EntityManager em = PersistenceManager.instance().createEntityManager();
-        try {
-            // Use JOIN FETCH to eagerly load the performer and their concerts in a single query
-            TypedQuery<Performer> query = em.createQuery(
-                "SELECT DISTINCT p FROM Performer p WHERE p.id = :id", Performer.class);
-            query.setParameter("id", id);
-            List<Performer> performers = query.getResultList();
-            Performer performer = performers.isEmpty() ? null : performers.get(0);
-            if (performer == null) {
-                return Response.status(Response.Status.NOT_FOUND).build();
-            }
-            PerformerDTO performerDTO = toPerformerDto(performer);
-            return Response.ok(performerDTO).build();
-        } finally {
-            em.close();
+    public Response getPerformer(@PathParam("id") Long id, @Context Request request) {
+        CachedResponse cached = CatalogResponseCache.instance().get("performers/" + id, () -> loadPerformer(id));
+        if (cached == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
         }
+        return cached.toResponse(request);
     }
 
     /**
-     * Retrieves all performers from the database, including all concerts they are associated with.
-     * Uses a JOIN FETCH query to efficiently load performers and their concerts in a single call.
-     * Returns a list of PerformerDTOs as a JSON response.
+     * Retrieves a page of performers, ordered by ID.
+     * Supports keyset pagination (after, limit) and filtering by genre (see CatalogQueryParams). If there are more
+     * results, a Link header with rel="next" gives the next page's URI.
+     * The serialized response is served from the catalog response cache (see retrieveConcert).
+     * Returns a list of PerformerDTOs as a JSON response, or BAD_REQUEST if the limit is not positive.
      */
     @GET
     @Path("/performers")
-    public Response getAllPerformers() {
-        List<PerformerDTO> performerDTOS = new ArrayList<>();
-        EntityManager em = PersistenceManager.instance().createEntityManager();
-        try {
-            // Use JOIN FETCH to eagerly load all performers and their concerts in a single query
-            TypedQuery<Performer> performerQuery = em.createQuery(
-                "SELECT DISTINCT p FROM Performer p", Performer.class);
-            List<Performer> performers = performerQuery.getResultList();
-            for (Performer p : performers) {
-                performerDTOS.add(toPerformerDto(p));
-            }
-        } finally {
-            em.close();
+    public Response getAllPerformers(@BeanParam CatalogQueryParams params,
+                                     @Context Request request,
+                                     @Context UriInfo uriInfo) {
+        if (!params.isValid()) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
         }
-        return Response.ok(performerDTOS).build();
+        CachedResponse cached = CatalogResponseCache.instance().get(
+                "performers?" + params.toCacheKey(), () -> loadPerformerPage(params));
+        return toPageResponse(cached, request, uriInfo);
     }
 
     /**
      * Handles user login by verifying credentials against the database.
      * 
      * - Accepts a UserDTO containing username and password.
+     * - Refuses the attempt with TOO_MANY_REQUESTS, without querying the database, if there have been too many recent
+     *   attempts for the username, from the client's address, or overall (see LoginThrottle). Behind a trusted proxy
+     *   such as the webapp, the client's address is the one the proxy passes in X-Forwarded-For.
      * - Checks if a user with the given username exists.
-     * - If the user exists and the password matches, returns a successful response with an authentication cookie.
+     * - If the user exists and the password matches, returns a successful response with an authentication cookie,
+     *   holding a signed token that identifies the user (see AuthTokens).
      * - If the user does not exist or the password is incorrect, returns an unauthorized response.
-     * - Ensures the EntityManager is always closed after the operation.
+     * - Uses the request's EntityManager, which EntityManagerFilter closes once the response is produced.
      */
     @POST
     @Path("/login")
-    public Response login(UserDTO userCreds) {
-        // Create a new EntityManager to interact with the database
-        EntityManager em = PersistenceManager.instance().createEntityManager();
-        try {
-            // Query the database for a user with the provided username
-            TypedQuery<User> query = em.createQuery(
-                    "SELECT u FROM User u WHERE u.username = :username", User.class);
-            query.setParameter("username", userCreds.getUsername());
-            User user = query.getSingleResult();
-            // Check if the provided password matches the user's password in the database
-            if (user.getPassword().equals(userCreds.getPassword())) {
-                // If credentials are correct, create an authentication cookie
-                NewCookie authCookie = new NewCookie("auth", user.getUsername());
-                // Return a successful response with the authentication cookie
-                return Response.ok().cookie(authCookie).build();
-            } else {
-                // If the password does not match, return an unauthorized response
-                return Response.status(Response.Status.UNAUTHORIZED).build();
-            }
-        } catch (NoResultException e) {
-            // If no user is found with the provided username, return an unauthorized response
+    public Response login(UserDTO userCreds, @Context HttpServletRequest request) {
+        LoginThrottle throttle = LoginThrottle.instance();
+        String address = throttle.clientAddress(request.getRemoteAddr(), request.getHeader(LoginThrottle.FORWARDED_FOR_HEADER));
+        long retryAfterSeconds = throttle.tryAcquire(userCreds.getUsername(), address);
+        if (retryAfterSeconds > 0) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                    .build();
+        }
+
+        // Query the database for a user with the provided username
+        User user = new UserRepository(EntityManagerScope.current()).findByUsername(userCreds.getUsername());
+        // Check if the user exists and the provided password matches the user's password in the database
+        if (user != null && user.getPassword().equals(userCreds.getPassword())) {
+            // If credentials are correct, create an authentication cookie that scripts can't read, that is only sent
+            // back over HTTPS if it was issued over HTTPS, and that expires with its token
+            AuthTokens tokens = AuthTokens.instance();
+            NewCookie authCookie = new NewCookie(AuthFilter.COOKIE_NAME, tokens.issue(user.getId(), user.getUsername()),
+                    null, null, null, (int) Math.min(tokens.getTtlSeconds(), Integer.MAX_VALUE), request.isSecure(),
+                    true);
+            // Return a successful response with the authentication cookie
+            return Response.ok().cookie(authCookie).build();
+        } else {
+            // If no user is found or the password does not match, return an unauthorized response
             return Response.status(Response.Status.UNAUTHORIZED).build();
-        } finally {
-            em.close();
         }
     }
 
     /**
      * Subscribes a user to concert info notifications for a specific concert and date.
-     * Uses a JOIN FETCH query to efficiently load the concert and its dates in a single call.
+     * The concert and its dates are read through the second-level cache.
      * If the concert or date is invalid, responds with BAD_REQUEST.
      * Otherwise, adds the subscription for later notification.
      */
@@ -232,21 +307,17 @@ public class ConcertResource {
     @Path("/subscribe/concertInfo")
     @Consumes(MediaType.APPLICATION_JSON)
     public void subscribeConcertInfo(ConcertInfoSubscriptionDTO subDto,
-                                     @CookieParam("auth") Cookie cookie,
+                                     @Context SecurityContext securityContext,
                                      @Suspended AsyncResponse asyncResponse){
-        if (cookie == null) {
+        UserPrincipal principal = authenticatedUser(securityContext);
+        if (principal == null) {
             asyncResponse.resume(Response.status(Response.Status.UNAUTHORIZED).build());
             return;
         }
 
         EntityManager em = PersistenceManager.instance().createEntityManager();
         try {
-            // Use JOIN FETCH to eagerly load the concert and its dates in a single query
-            TypedQuery<Concert> query = em.createQuery(
-                "SELECT c FROM Concert c LEFT JOIN FETCH c.dates WHERE c.id = :id", Concert.class);
-            query.setParameter("id", subDto.getConcertId());
-            List<Concert> concerts = query.getResultList();
-            Concert concert = concerts.isEmpty() ? null : concerts.get(0);
+            Concert concert = new ConcertRepository(em).find(subDto.getConcertId());
             // Check if the concert exists and the requested date is valid for this concert
             boolean dateMatch = concert != null && concert.getDates().stream()
                     .anyMatch(d -> d.isEqual(subDto.getDate()));
@@ -258,7 +329,7 @@ public class ConcertResource {
             ConcertSubscription subscription = new ConcertSubscription(
                     subDto.getConcertId(), subDto.getDate(), subDto.getPercentageBooked()
             );
-            subscriptions.add(new SubscriptionHolder(subscription, asyncResponse, cookie.getValue()));
+            subscriptions.add(new SubscriptionHolder(subscription, asyncResponse, principal.getName()));
         } finally {
             em.close();
         }
@@ -267,128 +338,112 @@ public class ConcertResource {
     /**
      * Attempts to book seats for a concert on a given date for the authenticated user.
      * Validates the concert and requested seats, books the seats, creates a booking, and notifies subscriptions.
+     * The user comes from the request's auth token, so isn't looked up in the database.
      * Rolls back the transaction and returns appropriate HTTP status if any step fails.
      * Returns 201 Created with the booking URI if successful.
      */
     @POST
     @Path("/bookings")
-    public Response attemptBooking(BookingRequestDTO bookingReqDto, @CookieParam("auth") Cookie cookie) {
+    public Response attemptBooking(BookingRequestDTO bookingReqDto, @Context SecurityContext securityContext) {
         // Check for authentication
-        if (cookie == null) {
+        UserPrincipal principal = authenticatedUser(securityContext);
+        if (principal == null) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
-        EntityManager em = PersistenceManager.instance().createEntityManager();
+        EntityManager em = EntityManagerScope.current();
+        Booking booking;
         try {
             em.getTransaction().begin();
             // Validate the concert and date, rollback if transaction fails
             if (!isValidConcertAndDate(em, bookingReqDto)) {
-                em.getTransaction().rollback();
                 return Response.status(Response.Status.BAD_REQUEST).build();
             }
             // Check seat availability and book, rollback if transaction fails/all seats are not available
             Set<Seat> seats = findAndBookAvailableSeats(em, bookingReqDto);
             if (seats == null) {
-                em.getTransaction().rollback();
                 return Response.status(Response.Status.FORBIDDEN).build();
             }
-            // Retrieve the user from the database
-            User user = findUserByCookie(em, cookie);
+            // Refer to the user by ID, without loading them
+            User user = em.getReference(User.class, principal.getId());
             // Create and persist the booking, commit transaction
-            Booking booking = createAndPersistBooking(em, bookingReqDto, seats, user);
-            // Notify any subscriptions that may be affected by this booking
-            notifyRelevantSubscriptions(bookingReqDto.getConcertId(), bookingReqDto.getDate(), em);
-            // Build the URI for the created booking
-            URI createdURI = URI.create("concert-service/bookings/" + booking.getId());
-            return Response.created(createdURI).build();
+            booking = createAndPersistBooking(em, bookingReqDto, seats, user);
         } finally {
-            em.close();
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
         }
+        // Notify any subscriptions that may be affected by this booking
+        notifyRelevantSubscriptions(bookingReqDto.getConcertId(), bookingReqDto.getDate(), em);
+        // Build the URI for the created booking
+        URI createdURI = URI.create("concert-service/bookings/" + booking.getId());
+        return Response.created(createdURI).build();
     }
 
     /**
      * Retrieves a booking by its ID, including all associated seats.
-     * Uses a JOIN FETCH query to efficiently load the booking and its seats in a single call.
+     * Uses a JOIN FETCH query, through the request's read-only EntityManager, to load the booking and its seats in a
+     * single call. A booking for a performance that has been archived is read from the archive tables instead.
      * If the booking does not exist or does not belong to the authenticated user, responds with FORBIDDEN.
      * Returns a BookingDTO as a JSON response.
      */
     @GET
     @Path("/bookings/{id}")
-    public Response getBooking(@PathParam("id") long id, @CookieParam("auth") Cookie cookie) {
-        if (cookie == null) {
+    public Response getBooking(@PathParam("id") long id, @Context SecurityContext securityContext) {
+        UserPrincipal principal = authenticatedUser(securityContext);
+        if (principal == null) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
-        EntityManager em = PersistenceManager.instance().createEntityManager();
-        try {
-            // Use JOIN FETCH to eagerly load the booking and its seats in a single query
-            TypedQuery<Booking> query = em.createQuery(
-                "SELECT b FROM Booking b LEFT JOIN FETCH b.seats WHERE b.id = :id", Booking.class);
-            query.setParameter("id", id);
-            List<Booking> bookings = query.getResultList();
-            Booking booking = bookings.isEmpty() ? null : bookings.get(0);
-            // Check if the booking exists and belongs to the authenticated user
-            if (booking == null || !cookie.getValue().equals(booking.getUser().getUsername())) {
-                return Response.status(Response.Status.FORBIDDEN).build();
-            }
-            // Convert the seats to DTOs for the response
-            List<SeatDTO> seats = new ArrayList<>();
-            for (Seat s : booking.getSeats()) {
-                SeatDTO sDTO = new SeatDTO(s.getLabel(), s.getCost());
-                seats.add(sDTO);
-            }
-            // Build and return the BookingDTO as a JSON response
-            BookingDTO bookingDto = new BookingDTO(booking.getConcertId(), booking.getDate(), seats);
-            return Response.ok(bookingDto).build();
-        } finally {
-            em.close();
+        EntityManager em = EntityManagerScope.current();
+        Booking booking = new BookingRepository(em).findWithSeats(id);
+        if (booking == null) {
+            // The performance may have been archived
+            return getArchivedBooking(em, id, principal);
+        }
+        // Check if the booking belongs to the authenticated user (comparing IDs doesn't load the user)
+        if (booking.getUser().getId() != principal.getId()) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+        // Convert the seats to DTOs for the response
+        List<SeatDTO> seats = new ArrayList<>();
+        for (Seat s : booking.getSeats()) {
+            SeatDTO sDTO = new SeatDTO(s.getLabel(), s.getCost());
+            seats.add(sDTO);
         }
+        // Build and return the BookingDTO as a JSON response
+        BookingDTO bookingDto = new BookingDTO(booking.getConcertId(), booking.getDate(), seats);
+        return Response.ok(bookingDto).build();
     }
 
     /**
      * Retrieves all bookings for the authenticated user, including all associated seats.
-     * Uses a JOIN FETCH query to efficiently load bookings and their seats in a single call.
-     * Returns a list of BookingDTOs as a JSON response.
+     * Returns a list of BookingDTOs as a JSON response, streamed as the bookings are read from the database.
      */
     @GET
     @Path("/bookings")
-    public Response getAllBookings(@CookieParam("auth") Cookie cookie) {
-        if (cookie == null) {
+    public Response getAllBookings(@Context SecurityContext securityContext) {
+        UserPrincipal principal = authenticatedUser(securityContext);
+        if (principal == null) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
-        EntityManager em = PersistenceManager.instance().createEntityManager();
-        try {
-            // Use JOIN FETCH to eagerly load all bookings and their seats for the user in a single query
-            TypedQuery<Booking> query = em.createQuery(
-                "SELECT DISTINCT b FROM Booking b LEFT JOIN FETCH b.seats WHERE b.user.username = :username", Booking.class);
-            query.setParameter("username", cookie.getValue());
-            List<Booking> bookings = query.getResultList();
-            List<BookingDTO> bookingDTOS = new ArrayList<>();
-            for (Booking b : bookings) {
-                // Convert the seats to DTOs for the response
-                List<SeatDTO> seats = new ArrayList<>();
-                for (Seat s : b.getSeats()) {
-                    SeatDTO sDTO = new SeatDTO(s.getLabel(), s.getCost());
-                    seats.add(sDTO);
-                }
-                // Build the BookingDTO and add to the result list
-                BookingDTO bookingDto = new BookingDTO(b.getConcertId(), b.getDate(), seats);
-                bookingDTOS.add(bookingDto);
-            }
-            return Response.ok(bookingDTOS).build();
-        } finally {
-            em.close();
-        }
+        long userId = principal.getId();
+        return Response.ok(new JsonArrayStreamingOutput(out -> writeBookings(userId, out)),
+                MediaType.APPLICATION_JSON_TYPE).build();
     }
 
     /**
      * Retrieves seats for a given concert date, filtered by booking status if specified.
      * If status is 'Any', returns all seats for the date.
      * If status is 'Booked' or 'Unbooked', returns only seats matching that booking status.
-     * Returns a list of SeatDTOs as a JSON response.
+     * If the date can't be parsed, or the status is missing or unknown, responds with BAD_REQUEST.
+     * The response is tagged with the date's seat availability version; if the client already holds that version
+     * (If-None-Match), a 304 is returned without touching the database.
+     * Returns a list of SeatDTOs as a JSON response, streamed as the seats are read from the database.
      */
     @GET
     @Path("/seats/{date}")
     public Response getSeatsForDate(@PathParam("date") String dateStr,
-                                    @QueryParam("status") String status) {
+                                    @QueryParam("status") String status,
+                                    @Context Request request) {
         LocalDateTime date;
         try {
             // Parse the date string from the path parameter
@@ -397,100 +452,272 @@ public class ConcertResource {
             // If the date is invalid, return a 400 Bad Request
             return Response.status(Response.Status.BAD_REQUEST).build();
         }
-
-        EntityManager em = PersistenceManager.instance().createEntityManager();
+        BookingStatus bookingStatus;
         try {
-            // If status is 'Any', return all seats for the date
-            if (BookingStatus.valueOf(status).equals(BookingStatus.Any)) {
-                TypedQuery<Seat> query = em.createQuery(
-                        "SELECT s FROM Seat s WHERE s.date = :date", Seat.class);
-                query.setParameter("date", date);
-                List<SeatDTO> results = query.getResultList().stream()
-                        .map(seat -> new SeatDTO(seat.getLabel(), seat.getCost()))
-                        .collect(Collectors.toList());
-
-                return Response.ok(results).build();
-            } else {
-                // Otherwise, filter by booking status (Booked or Unbooked)
-                boolean fetchBooked = "Booked".equalsIgnoreCase(status);
-                TypedQuery<Seat> query = em.createQuery(
-                        "SELECT s FROM Seat s WHERE s.date = :date AND s.isBooked = :booked", Seat.class);
-                query.setParameter("date", date);
-                query.setParameter("booked", fetchBooked);
-
-                List<SeatDTO> results = query.getResultList().stream()
-                        .map(seat -> new SeatDTO(seat.getLabel(), seat.getCost()))
-                        .collect(Collectors.toList());
-
-                return Response.ok(results).build();
+            bookingStatus = BookingStatus.valueOf(status);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            // Missing or unknown status
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        // Read the version before querying, so a booking committed mid-query can only make the tag stale, never wrong
+        SeatAvailabilityVersions versions = SeatAvailabilityVersions.instance();
+        EntityTag etag = versions.etagFor(bookingStatus, versions.getVersion(date));
+        if (request != null) {
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+            if (notModified != null) {
+                return notModified.build();
             }
-        } finally {
-            em.close();
         }
+
+        return Response.ok(new JsonArrayStreamingOutput(out -> writeSeats(date, bookingStatus, out)),
+                MediaType.APPLICATION_JSON_TYPE).tag(etag).build();
     }
 
     // =====================
     // Helper Methods
     // =====================
 
+    /**
+     * Builds the response for a cached page of a listing, adding a rel="next" Link header if there are more results.
+     */
+    private Response toPageResponse(CachedResponse cached, Request request, UriInfo uriInfo) {
+        Link next = null;
+        if (cached.getNextCursor() != null && uriInfo != null) {
+            next = Link.fromUriBuilder(uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("after", cached.getNextCursor()))
+                    .rel("next").build();
+        }
+        return cached.toResponse(request, next);
+    }
+
+    /**
+     * Streams the seats for a date, filtered by booking status, as SeatDTOs.
+     * The seats are projected straight into DTOs and scrolled with a fixed fetch size, so no Seat entities are loaded
+     * and only one DTO is held at a time.
+     * @param date Concert date
+     * @param bookingStatus 'Any', or 'Booked' / 'Unbooked' to filter by booking status
+     * @param out writer for the response array
+     */
+    private void writeSeats(LocalDateTime date, BookingStatus bookingStatus, JsonArrayStreamingOutput.ElementWriter out)
+            throws IOException {
+        EntityManager em = PersistenceManager.instance().createReadOnlyEntityManager();
+        try {
+            try (Stream<SeatDTO> seats = new SeatRepository(em).streamDtos(date, bookingStatus)) {
+                Iterator<SeatDTO> iterator = seats.iterator();
+                while (iterator.hasNext()) {
+                    out.write(iterator.next());
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Retrieves an archived booking by its ID, in the same way as getBooking().
+     * @param em EntityManager for DB access
+     * @param id Booking ID
+     * @param principal the authenticated user, who must own the booking
+     * @return the response for getBooking()
+     */
+    private Response getArchivedBooking(EntityManager em, long id, UserPrincipal principal) {
+        ArchivedBooking booking = new ArchiveRepository(em).findBookingWithSeats(id);
+        if (booking == null || booking.getUserId() != principal.getId()) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+        List<SeatDTO> seats = new ArrayList<>();
+        for (ArchivedSeat s : booking.getSeats()) {
+            seats.add(new SeatDTO(s.getLabel(), s.getCost()));
+        }
+        return Response.ok(new BookingDTO(booking.getConcertId(), booking.getDate(), seats)).build();
+    }
+
+    /**
+     * Streams a user's bookings, with their seats, as BookingDTOs: live bookings first, then archived ones.
+     * One row is read per booked seat, ordered by booking, so each booking is written as soon as its last seat has
+     * been read and only one booking is held at a time.
+     * @param userId ID of the user whose bookings to write
+     * @param out writer for the response array
+     */
+    private void writeBookings(long userId, JsonArrayStreamingOutput.ElementWriter out) throws IOException {
+        EntityManager em = PersistenceManager.instance().createReadOnlyEntityManager();
+        try {
+            try (Stream<Object[]> rows = new BookingRepository(em).streamSeatRows(userId)) {
+                writeBookingRows(rows, out);
+            }
+            try (Stream<Object[]> rows = new ArchiveRepository(em).streamBookingSeatRows(userId)) {
+                writeBookingRows(rows, out);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Writes bookings read as one row per booked seat, ordered by booking (see BookingRepository.streamSeatRows).
+     * @param rows the rows
+     * @param out writer for the response array
+     */
+    private void writeBookingRows(Stream<Object[]> rows, JsonArrayStreamingOutput.ElementWriter out) throws IOException {
+        Iterator<Object[]> iterator = rows.iterator();
+        Long bookingId = null;
+        BookingDTO booking = null;
+        while (iterator.hasNext()) {
+            Object[] row = iterator.next();
+            if (!row[0].equals(bookingId)) {
+                if (booking != null) {
+                    out.write(booking);
+                }
+                bookingId = (Long) row[0];
+                booking = new BookingDTO((Long) row[1], (LocalDateTime) row[2], new ArrayList<>());
+            }
+            booking.getSeats().add(new SeatDTO((String) row[3], (BigDecimal) row[4]));
+        }
+        if (booking != null) {
+            out.write(booking);
+        }
+    }
+
+    /**
+     * Loads a concert by its ID, including its performers and dates.
+     * The concert and both collections are read through the second-level cache, so once warm no SQL is issued.
+     * @param id Concert ID
+     * @return the ConcertDTO, or null if there is no such concert
+     */
+    private ConcertDTO loadConcert(long id) {
+        Concert concert = new ConcertRepository(EntityManagerScope.current()).find(id);
+        return concert == null ? null : toConcertDto(concert);
+    }
+
+    /**
+     * Loads the labels of the booked seats for a date, projected straight from the seat rows.
+     */
+    private List<String> loadBookedSeatLabels(LocalDateTime date) {
+        try (Stream<SeatDTO> seats = new SeatRepository(EntityManagerScope.current())
+                .streamDtos(date, BookingStatus.Booked)) {
+            return seats.map(SeatDTO::getLabel).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Loads one page of concerts, including their performers and dates.
+     * The IDs on the page are found first (by keyset, using the filters), then only those concerts are fetched.
+     * Runs read-only, and loads no entities (see ConcertRepository.findDtos).
+     * @param params pagination and filter parameters
+     * @return a page of ConcertDTOs
+     */
+    private Page<ConcertDTO> loadConcertPage(CatalogQueryParams params) {
+        ConcertRepository concerts = new ConcertRepository(EntityManagerScope.current());
+        // Fetch one extra ID to find out whether there is a next page
+        List<Long> ids = concerts.findIds(params, params.getLimit() + 1);
+
+        Long nextCursor = null;
+        if (ids.size() > params.getLimit()) {
+            ids = ids.subList(0, params.getLimit());
+            nextCursor = ids.get(ids.size() - 1);
+        }
+
+        return new Page<>(concerts.findDtos(ids), nextCursor);
+    }
+
+    /**
+     * Loads one page of concert summaries.
+     * Uses a constructor-expression projection of exactly the summary columns, so one row is read per concert and
+     * no entities (or their performers and dates) are loaded.
+     * @param params pagination and filter parameters
+     * @return a page of ConcertSummaryDTOs
+     */
+    private Page<ConcertSummaryDTO> loadSummaryPage(CatalogQueryParams params) {
+        List<ConcertSummaryDTO> summaries = new ConcertRepository(EntityManagerScope.current())
+                .findSummaries(params, params.getLimit() + 1);
+
+        Long nextCursor = null;
+        if (summaries.size() > params.getLimit()) {
+            summaries = summaries.subList(0, params.getLimit());
+            nextCursor = summaries.get(summaries.size() - 1).getId();
+        }
+        return new Page<>(summaries, nextCursor);
+    }
+
+    /**
+     * Loads a performer by their ID, through the second-level cache.
+     * @param id Performer ID
+     * @return the PerformerDTO, or null if there is no such performer
+     */
+    private PerformerDTO loadPerformer(Long id) {
+        Performer performer = new PerformerRepository(EntityManagerScope.current()).find(id);
+        return performer == null ? null : toPerformerDto(performer);
+    }
+
+    /**
+     * Loads one page of performers, optionally restricted to a genre.
+     * Projects the columns straight into PerformerDTOs, so no Performer entities are loaded.
+     * @param params pagination and filter parameters
+     * @return a page of PerformerDTOs
+     */
+    private Page<PerformerDTO> loadPerformerPage(CatalogQueryParams params) {
+        List<PerformerDTO> performers = new PerformerRepository(EntityManagerScope.current())
+                .findDtos(params.getAfter(), params.getGenre(), params.getLimit() + 1);
+
+        Long nextCursor = null;
+        if (performers.size() > params.getLimit()) {
+            performers = performers.subList(0, params.getLimit());
+            nextCursor = performers.get(performers.size() - 1).getId();
+        }
+        return new Page<>(performers, nextCursor);
+    }
+
     /**
      * Checks if the concert and date in the booking request are valid.
+     * The concert and its dates normally come from the second-level cache rather than the database.
      * @param em EntityManager for DB access
      * @param bookingReqDto Booking request DTO
      * @return true if the concert exists and the date is valid for the concert, false otherwise
      */
     private boolean isValidConcertAndDate(EntityManager em, BookingRequestDTO bookingReqDto) {
-        Concert concert = em.find(Concert.class, bookingReqDto.getConcertId());
+        Concert concert = new ConcertRepository(em).find(bookingReqDto.getConcertId());
         return concert != null && concert.getDates().contains(bookingReqDto.getDate());
     }
 
     /**
-     * Retrieves available seats for the given booking request.
-     * Returns null if any requested seat is already booked or does not exist.
+     * Retrieves available seats for the given booking request, loading all of them in a single query.
+     * Returns null if any requested seat is already booked, does not exist, or is requested more than once.
      * @param em EntityManager for DB access
      * @param bookingReqDto Booking request DTO
      * @return Set of available Seat entities, or null if any seat is unavailable
      */
     private Set<Seat> findAndBookAvailableSeats(EntityManager em, BookingRequestDTO bookingReqDto) {
+        List<String> seatLabels = bookingReqDto.getSeatLabels();
+        List<Seat> found = new SeatRepository(em).findByDateAndLabels(bookingReqDto.getDate(), seatLabels);
+        if (found.size() != seatLabels.size()) {
+            return null; // Seat does not exist, or was requested twice
+        }
         Set<Seat> seats = new HashSet<>();
-        for (String seatLabel : bookingReqDto.getSeatLabels()) {
-            try {
-                TypedQuery<Seat> query = em.createQuery(
-                        "SELECT s FROM Seat s WHERE s.label = :label AND s.date = :date", Seat.class);
-                query.setParameter("label", seatLabel);
-                query.setParameter("date", bookingReqDto.getDate());
-                Seat seat = query.getSingleResult();
-                if (seat.getBookingStatus()) {
-                    return null; // Seat already booked
-                }
-                seat.setBookingStatus(true);
-                em.merge(seat);
-                seats.add(seat);
-            } catch (NoResultException e) {
-                return null; // Seat does not exist
+        for (Seat seat : found) {
+            if (seat.getBookingStatus()) {
+                return null; // Seat already booked
             }
+            seat.setBookingStatus(true);
+            seats.add(seat);
         }
         return seats;
     }
 
     /**
-     * Retrieves a User entity from the database using the username from the auth cookie.
-     * @param em EntityManager for DB access
-     * @param cookie Auth cookie containing the username
-     * @return User entity, or null if not found
+     * Returns the user a request was authenticated as by AuthFilter.
+     * @param securityContext the request's security context
+     * @return the user, or null if the request carries no valid auth token
      */
-    private User findUserByCookie(EntityManager em, Cookie cookie) {
-        try {
-            TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u.username = :username", User.class);
-            query.setParameter("username", cookie.getValue());
-            return query.getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        }
+    private UserPrincipal authenticatedUser(SecurityContext securityContext) {
+        return securityContext == null ? null : (UserPrincipal) securityContext.getUserPrincipal();
     }
 
     /**
-     * Creates and persists a new Booking entity, commits the transaction, and returns the booking.
+     * Creates and persists a new Booking entity, commits the transaction, bumps the seat availability version for the
+     * date, journals the booking, and returns it.
+     * The booking refers to the user by foreign key, and the user's bookings collection is not touched, so the cost of
+     * a booking doesn't depend on how many bookings the user already has.
      * @param em EntityManager for DB access
      * @param bookingReqDto Booking request DTO
      * @param seats Set of booked Seat entities
@@ -499,26 +726,34 @@ public class ConcertResource {
      */
     private Booking createAndPersistBooking(EntityManager em, BookingRequestDTO bookingReqDto, Set<Seat> seats, User user) {
         Booking booking = new Booking(bookingReqDto.getConcertId(), bookingReqDto.getDate(), seats, user);
-        user.addBooking(booking);
+        em.persist(booking);
         em.getTransaction().commit();
+        SeatAvailabilityVersions.instance().bump(bookingReqDto.getDate());
+        // Journalled after the commit, so only committed bookings are replayed. The journal is a best-effort redo log
+        // (see BookingJournal), so a booking that has committed is still acknowledged if it can't be journalled.
+        try {
+            BookingJournal.instance().append(booking.getId(), bookingReqDto.getConcertId(), bookingReqDto.getDate(),
+                    bookingReqDto.getSeatLabels(), user.getId());
+        } catch (RuntimeException e) {
+            LOGGER.error("createAndPersistBooking(): Could not journal booking " + booking.getId(), e);
+        }
         return booking;
     }
 
     /**
      * Notifies all relevant subscriptions if the percentage of booked seats for a concert/date meets or exceeds the threshold.
+     * The seats are counted in the database, in a single grouped query, rather than loaded.
      * @param concertId Concert ID
      * @param date Concert date
      * @param em EntityManager for DB access
      */
     private void notifyRelevantSubscriptions(long concertId, LocalDateTime date, EntityManager em) {
-        TypedQuery<Seat> allSeatsQuery = em.createQuery(
-                "SELECT s FROM Seat s WHERE s.date = :date", Seat.class);
-        allSeatsQuery.setParameter("date", date);
-        List<Seat> allSeats = allSeatsQuery.getResultList();
-
-        int totalSeats = allSeats.size();
-        int availableSeats = (int) allSeats.stream().filter(s -> !s.getBookingStatus()).count();
-        int percentBooked = totalSeats == 0 ? 0 : (int) (((totalSeats - availableSeats) * 100.0) / totalSeats);
+        List<AvailabilityDTO> found = new SeatRepository(em).findAvailability(Collections.singleton(date));
+        if (found.isEmpty()) {
+            return;
+        }
+        int percentBooked = found.get(0).percentBooked();
+        int availableSeats = found.get(0).getRemaining();
 
         for (SubscriptionHolder holder : new ArrayList<>(subscriptions)) {
             ConcertSubscription sub = holder.subscription;
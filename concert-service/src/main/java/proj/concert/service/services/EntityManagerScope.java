@@ -0,0 +1,94 @@
+package proj.concert.service.services;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Provides a single EntityManager for the duration of a unit of work, normally one HTTP request (see
+ * {@link proj.concert.service.jaxrs.EntityManagerFilter}). The EntityManager is only created if it is asked for, and
+ * closing the scope closes it, rolling back any transaction left active.
+ * <p>
+ * While a scope is open on a thread, code running on that thread can get its EntityManager with {@link #current()}:
+ * <code>
+ *     try (EntityManagerScope scope = EntityManagerScope.open(true)) {
+ *         EntityManager em = EntityManagerScope.current();
+ *         // ...
+ *     }
+ * </code>
+ * Work that happens after the scope has closed, such as writing a streamed response body or resuming an asynchronous
+ * response, must create (and close) its own EntityManager.
+ */
+public class EntityManagerScope implements AutoCloseable {
+
+    private static final ThreadLocal<EntityManagerScope> CURRENT = new ThreadLocal<>();
+
+    private final boolean readOnly;
+    private EntityManager em;
+    private boolean closed;
+
+    private EntityManagerScope(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Opens a new scope and makes it the current scope for this thread.
+     *
+     * @param readOnly if true, the scope's EntityManager is read-only (see
+     *                 {@link PersistenceManager#createReadOnlyEntityManager()})
+     */
+    public static EntityManagerScope open(boolean readOnly) {
+        EntityManagerScope scope = new EntityManagerScope(readOnly);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Returns the EntityManager of the current thread's scope, creating it if this is the first time it is needed.
+     *
+     * @throws IllegalStateException if there is no open scope on this thread
+     */
+    public static EntityManager current() {
+        EntityManagerScope scope = CURRENT.get();
+        if (scope == null) {
+            throw new IllegalStateException("No EntityManagerScope is open on this thread");
+        }
+        return scope.getEntityManager();
+    }
+
+    /**
+     * Returns this scope's EntityManager, creating it if this is the first time it is needed.
+     */
+    public synchronized EntityManager getEntityManager() {
+        if (closed) {
+            throw new IllegalStateException("EntityManagerScope has been closed");
+        }
+        if (em == null) {
+            em = readOnly
+                    ? PersistenceManager.instance().createReadOnlyEntityManager()
+                    : PersistenceManager.instance().createEntityManager();
+        }
+        return em;
+    }
+
+    /**
+     * Closes the scope and its EntityManager (if one was created). May be called from any thread, and more than once.
+     */
+    @Override
+    public synchronized void close() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (em != null) {
+            try {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+            } finally {
+                em.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package proj.concert.service.services;
+
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import proj.concert.service.auth.LoginThrottle;
+import proj.concert.service.datasource.PoolMetrics;
+import proj.concert.service.datasource.PoolMetricsTrackerFactory;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes operational metrics about the concert service, for monitoring.
+ */
+@Path("/concert-service-metrics")
+@Produces({MediaType.APPLICATION_JSON})
+public class MetricsResource {
+
+    /**
+     * Reports hits, misses, puts and hit ratio for each second-level cache region (concerts, performers and their
+     * collections), and for the query cache, since the EntityManagerFactory was created.
+     */
+    @GET
+    @Path("/cache")
+    public Response getCacheMetrics() {
+        Statistics statistics = PersistenceManager.instance().getStatistics();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(regionName);
+            regions.put(regionName, toMetrics(region.getHitCount(), region.getMissCount(), region.getPutCount()));
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("secondLevelCache", toMetrics(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount()));
+        metrics.put("regions", regions);
+        metrics.put("queryCache", toMetrics(statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount()));
+
+        return Response.ok(metrics).build();
+    }
+
+    /**
+     * Reports, for each open connection pool, its current active, idle and total connections and waiting threads, and
+     * the number of connections acquired, how long acquisition took (mean and max) and how many attempts timed out.
+     */
+    @GET
+    @Path("/pool")
+    public Response getPoolMetrics() {
+        // Make sure the pool has been started
+        PersistenceManager.instance();
+
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (PoolMetrics pool : PoolMetricsTrackerFactory.getPools()) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("active", pool.getActiveConnections());
+            metrics.put("idle", pool.getIdleConnections());
+            metrics.put("total", pool.getTotalConnections());
+            metrics.put("max", pool.getMaxConnections());
+            metrics.put("waiting", pool.getPendingThreads());
+            metrics.put("acquisitions", pool.getAcquisitions());
+            metrics.put("meanAcquireMillis", pool.getMeanAcquireMillis());
+            metrics.put("maxAcquireMillis", pool.getMaxAcquireMillis());
+            metrics.put("meanUsageMillis", pool.getMeanUsageMillis());
+            metrics.put("timeouts", pool.getTimeouts());
+            pools.put(pool.getPoolName(), metrics);
+        }
+        return Response.ok(pools).build();
+    }
+
+    /**
+     * Reports the number of login attempts accepted, and rejected by each limit (see LoginThrottle), since the service
+     * started, and how many usernames and client addresses are currently being tracked.
+     */
+    @GET
+    @Path("/login")
+    public Response getLoginMetrics() {
+        LoginThrottle throttle = LoginThrottle.instance();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("accepted", throttle.getAccepted());
+        metrics.put("rejectedByUsername", throttle.getRejectedByUsername());
+        metrics.put("rejectedByAddress", throttle.getRejectedByAddress());
+        metrics.put("rejectedGlobally", throttle.getRejectedGlobally());
+        metrics.put("trackedUsernames", throttle.getTrackedUsernames());
+        metrics.put("trackedAddresses", throttle.getTrackedAddresses());
+        return Response.ok(metrics).build();
+    }
+
+    /**
+     * Builds the metrics reported for a single cache.
+     */
+    private static Map<String, Object> toMetrics(long hits, long misses, long puts) {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("hits", hits);
+        metrics.put("misses", misses);
+        metrics.put("puts", puts);
+        metrics.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return metrics;
+    }
+}
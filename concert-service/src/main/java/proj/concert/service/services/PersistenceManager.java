@@ -1,8 +1,35 @@
 package proj.concert.service.services;
 
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import proj.concert.service.auth.LoginThrottle;
+import proj.concert.service.cache.BookedSeatsCache;
+import proj.concert.service.cache.CatalogResponseCache;
+import proj.concert.service.cache.SeatAvailabilityVersions;
+import proj.concert.service.datasource.PersistenceProfile;
+import proj.concert.service.domain.Concert;
+import proj.concert.service.domain.Performer;
+import proj.concert.service.journal.BookingJournal;
+import proj.concert.service.journal.SeatSnapshotter;
+import proj.concert.service.search.CatalogSearchIndex;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Singleton class that manages an EntityManagerFactory. When a
@@ -12,34 +39,223 @@ import javax.persistence.Persistence;
  * <p>
  * When a web service application component (e.g. a resource object) requires a
  * persistence context, it should call the PersistentManager's
- * createEntityManager() method to acquire one.
+ * createEntityManager() method to acquire one. Resource methods normally use the
+ * request's EntityManager instead (see {@link EntityManagerScope}).
+ * <p>
+ * This class is thread-safe. Each EntityManager keeps the EntityManagerFactory
+ * that created it open until the EntityManager is closed, so reset() can replace
+ * the factory while other threads are still using EntityManagers from the old one;
+ * the old factory is closed once its last EntityManager is.
+ * <p>
+ * The catalog entities (concerts, performers and concert dates) are held in Hibernate's second-level cache, and catalog
+ * queries in its query cache (see persistence.xml). Code that changes the catalog outside of an EntityManager should
+ * call evictCatalog() afterwards.
  * <p>
- * This class is complete - you do not need to modify it.
+ * Connections come from a HikariCP pool configured in persistence.xml; see
+ * {@link proj.concert.service.datasource.PoolMetricsTrackerFactory} for its metrics. The database itself is chosen
+ * by the {@link PersistenceProfile} selected at startup.
  */
 public class PersistenceManager {
-    private static PersistenceManager instance = null;
+    private static final String POOL_PROPERTY_PREFIX = "hibernate.hikari.";
+    private static final String CACHE_PROVIDER = "org.ehcache.jsr107.EhcacheCachingProvider";
+    private static final String CACHE_CONFIGURATION = "ehcache.xml";
 
-    private EntityManagerFactory entityManagerFactory;
+    private static final PersistenceManager instance = new PersistenceManager();
+
+    private volatile Generation current;
 
     protected PersistenceManager() {
-        entityManagerFactory = Persistence.createEntityManagerFactory("proj.concert");
+        current = new Generation(createEntityManagerFactory(false));
+    }
+
+    /**
+     * Creates the EntityManagerFactory for the persistence unit in persistence.xml, connected to the database of the
+     * selected {@link PersistenceProfile}. Connection pool settings
+     * (hibernate.hikari.*) given as system properties override those in persistence.xml, so the pool can be tuned
+     * for a deployment without rebuilding.
+     * <p>
+     * Each factory is given its own second-level cache. JCache shares a CacheManager between everything that asks for
+     * the same configuration, and Hibernate closes the CacheManager when the factory is closed, so without this closing
+     * a replaced factory would also close the caches of the factory that replaced it.
+     *
+     * @param wipe if true, the database schema is dropped and recreated
+     */
+    private static EntityManagerFactory createEntityManagerFactory(boolean wipe) {
+        Map<String, Object> overrides = new HashMap<>(PersistenceProfile.selected().properties(wipe));
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(POOL_PROPERTY_PREFIX)) {
+                overrides.put(name, System.getProperty(name));
+            }
+        }
+        overrides.put("hibernate.javax.cache.cache_manager", createCacheManager());
+        return Persistence.createEntityManagerFactory("proj.concert", overrides);
+    }
+
+    /**
+     * Creates a new CacheManager configured by ehcache.xml. CacheManagers are shared per URI and class loader, so a
+     * class loader of its own makes this one distinct from any other.
+     */
+    private static CacheManager createCacheManager() {
+        ClassLoader parent = PersistenceManager.class.getClassLoader();
+        CachingProvider provider = Caching.getCachingProvider(CACHE_PROVIDER, parent);
+        try {
+            return provider.getCacheManager(parent.getResource(CACHE_CONFIGURATION).toURI(), new ClassLoader(parent) {
+            });
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Invalid cache configuration location", e);
+        }
     }
 
     public EntityManager createEntityManager() {
-        return entityManagerFactory.createEntityManager();
+        return open(false);
+    }
+
+    /**
+     * Creates an EntityManager for code that only reads. Every entity it loads (by find, query or lazy loading) is
+     * read-only, so Hibernate keeps no snapshot of its state for dirty checking, and it never flushes. Changes made to
+     * the entities are silently ignored, so it must not be used to update the database.
+     */
+    public EntityManager createReadOnlyEntityManager() {
+        return open(true);
     }
 
     public static PersistenceManager instance() {
-        if (instance == null) {
-            instance = new PersistenceManager();
-        }
         return instance;
     }
 
-    // FOR TESTING ONLY! Will wipe the database.
-    public void reset() {
-        entityManagerFactory.close();
-        entityManagerFactory = Persistence.createEntityManagerFactory("proj.concert");
+    /**
+     * Evicts the catalog entities, their collections and all cached query results from the second-level cache.
+     */
+    public void evictCatalog() {
+        EntityManagerFactory entityManagerFactory = current.factory;
+        Cache cache = entityManagerFactory.getCache();
+        cache.evict(Concert.class);
+        cache.evict(Performer.class);
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictCollectionData();
+        sessionFactory.getCache().evictQueryRegions();
+    }
+
+    /**
+     * Returns the Hibernate statistics for the current EntityManagerFactory, including second-level and query cache
+     * hits, misses and puts.
+     */
+    public Statistics getStatistics() {
+        return current.factory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // FOR TESTING ONLY! Will wipe the database, along with the state the service keeps about it in memory and in the
+    // journal, so that each test starts from a clean service.
+    public synchronized void reset() {
+        Generation old = current;
+        current = new Generation(createEntityManagerFactory(true));
+        old.retire();
+        resetDerivedState();
     }
 
+    /**
+     * Resets everything derived from the database's contents: the booking journal and its seat snapshot, the catalog
+     * response cache and search index, seat availability versions and booked seat labels. Login limits are refilled
+     * too, so each test starts within them.
+     */
+    private void resetDerivedState() {
+        BookingJournal.instance().reset();
+        SeatSnapshotter.instance().reset();
+        CatalogResponseCache.instance().invalidate();
+        CatalogSearchIndex.instance().invalidate();
+        SeatAvailabilityVersions.instance().reset();
+        BookedSeatsCache.instance().invalidate();
+        LoginThrottle.instance().reset();
+    }
+
+    /**
+     * Creates an EntityManager from the current factory, holding a reference to the factory until it is closed.
+     */
+    private EntityManager open(boolean readOnly) {
+        while (true) {
+            Generation generation = current;
+            // Fails only if the generation was replaced and closed since it was read, in which case use the new one
+            if (generation.retain()) {
+                try {
+                    EntityManager em = generation.factory.createEntityManager();
+                    if (readOnly) {
+                        Session session = em.unwrap(Session.class);
+                        session.setDefaultReadOnly(true);
+                        session.setHibernateFlushMode(FlushMode.MANUAL);
+                    }
+                    return generation.track(em);
+                } catch (RuntimeException e) {
+                    generation.release();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * An EntityManagerFactory and a count of the references to it: one for being the current factory, plus one for
+     * each open EntityManager it created. The factory is closed when the count reaches zero.
+     */
+    private static class Generation {
+        final EntityManagerFactory factory;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Generation(EntityManagerFactory factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * Adds a reference, unless the factory has already been closed.
+         * @return true if a reference was added
+         */
+        boolean retain() {
+            int count;
+            do {
+                count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                factory.close();
+            }
+        }
+
+        /**
+         * Called when this is no longer the current factory.
+         */
+        void retire() {
+            release();
+        }
+
+        /**
+         * Wraps an EntityManager so that closing it releases its reference to this factory (once only).
+         */
+        EntityManager track(EntityManager em) {
+            AtomicBoolean closed = new AtomicBoolean();
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                    if (closed.compareAndSet(false, true)) {
+                        try {
+                            em.close();
+                        } finally {
+                            release();
+                        }
+                    }
+                    return null;
+                }
+                try {
+                    return method.invoke(em, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return (EntityManager) Proxy.newProxyInstance(
+                    EntityManager.class.getClassLoader(), new Class<?>[]{EntityManager.class}, handler);
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package proj.concert.service.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import proj.concert.service.archive.PerformanceArchiver;
+import proj.concert.service.journal.BookingJournal;
+import proj.concert.service.journal.SeatSnapshotter;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Stops the service's background work when the webapp is undeployed: the seat snapshot writer and the performance
+ * archiver that {@link ConcertApplication} starts, and then the booking journal, which forces its last records to disk
+ * and releases its files and directory lock. Without this, an undeployment would leave their threads running and, on a
+ * redeployment in the same JVM, the new service couldn't open the journal because the old one still held it.
+ */
+public class ServiceShutdownListener implements ServletContextListener {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(ServiceShutdownListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        // The snapshot writer reads the journal, so stop it first
+        SeatSnapshotter.instance().stop();
+        PerformanceArchiver.instance().stop();
+        BookingJournal.closeInstance();
+        LOGGER.info("contextDestroyed(): Stopped background tasks and closed the booking journal");
+    }
+}
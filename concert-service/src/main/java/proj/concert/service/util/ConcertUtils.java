@@ -1,67 +1,349 @@
 package proj.concert.service.util;
 
+import org.hibernate.tool.hbm2ddl.SingleLineSqlCommandExtractor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import proj.concert.service.domain.Concert;
+import proj.concert.service.cache.CatalogResponseCache;
+import proj.concert.service.cache.SeatAvailabilityVersions;
+import proj.concert.service.domain.Booking;
 import proj.concert.service.domain.Seat;
+import proj.concert.service.domain.User;
+import proj.concert.service.journal.BookingJournal;
+import proj.concert.service.journal.BookingRecord;
+import proj.concert.service.journal.SeatSnapshot;
+import proj.concert.service.journal.SeatSnapshotter;
+import proj.concert.service.repository.ArchiveRepository;
+import proj.concert.service.repository.BookingRepository;
+import proj.concert.service.repository.ConcertRepository;
+import proj.concert.service.repository.SeatRepository;
+import proj.concert.service.search.CatalogSearchIndex;
 import proj.concert.service.services.ConcertApplication;
 import proj.concert.service.services.PersistenceManager;
 
 import javax.persistence.EntityManager;
-import javax.persistence.TypedQuery;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ConcertUtils {
 
     private static Logger LOGGER = LoggerFactory.getLogger(ConcertUtils.class);
 
+    // The script that loads the catalog and test users (see persistence.xml)
+    private static final String CATALOG_SCRIPT = "db-init.sql";
+
+    // Should match hibernate.jdbc.batch_size in persistence.xml
+    private static final int BATCH_SIZE = 50;
+    // Dates seated in each transaction
+    private static final int DATES_PER_TRANSACTION = 10;
+    // Kept well below the connection pool size, so seeding doesn't starve requests of connections
+    private static final int MAX_THREADS = 4;
+
     /**
-     * This method will clear all seat and booking data from the database. Then, it will create all Seat objects for
-     * all concerts and dates.
+     * This method will load the catalog into the database if it has none, which happens when the database was kept
+     * from a previous run but is empty. Then, it will create all Seat objects for all concerts and dates that don't
+     * have them yet (and haven't been archived), so it is safe to call on a database whose data is kept across
+     * restarts.
      */
     public static void initConcerts() {
         LOGGER.debug("initConcerts(): Creating the Application");
 
-        EntityManager em = PersistenceManager.instance().createEntityManager();
+        // Get all dates for all concerts, less those that already have seats
+        Set<LocalDateTime> allDates;
+        EntityManager em = PersistenceManager.instance().createReadOnlyEntityManager();
         try {
+            ConcertRepository concertRepository = new ConcertRepository(em);
+            if (concertRepository.count() == 0) {
+                loadCatalog();
+            }
+            allDates = new LinkedHashSet<>(concertRepository.findAllDates());
+            allDates.removeAll(new SeatRepository(em).findAllDates());
+            allDates.removeAll(new ArchiveRepository(em).findArchivedDates());
+        } finally {
+            em.close();
+        }
 
-            // Get all concerts
-            em.getTransaction().begin();
-            TypedQuery<Concert> query = em.createQuery("select c from Concert c", Concert.class);
-            List<Concert> concerts = query.getResultList();
-
-            // Get all dates for all concerts
-            Set<LocalDateTime> allDates = new HashSet<>();
-            for (Concert c : concerts) {
-                Set<LocalDateTime> dates = c.getDates();
-                allDates.addAll(dates);
+        LOGGER.debug("initConcerts(): There are " + allDates.size() + " concert dates without seats");
+
+        int seatCount = createSeats(allDates);
+
+        LOGGER.debug("initConcerts(): Created " + seatCount + " seats!");
+    }
+
+    /**
+     * Creates and persists the seats for each of the given dates.
+     * <p>
+     * The dates are split into groups, which are seated in parallel, each in its own transaction. Within a
+     * transaction, seats are inserted in JDBC batches and then detached, so the persistence context never holds more
+     * than one batch of seats.
+     *
+     * @param dates the concert dates, each of which must not already have seats
+     * @return the number of seats created
+     */
+    public static int createSeats(Collection<LocalDateTime> dates) {
+        List<List<LocalDateTime>> groups = new ArrayList<>();
+        List<LocalDateTime> group = new ArrayList<>();
+        for (LocalDateTime date : dates) {
+            group.add(date);
+            if (group.size() == DATES_PER_TRANSACTION) {
+                groups.add(group);
+                group = new ArrayList<>();
             }
-            em.getTransaction().commit();
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
 
-            LOGGER.debug("initConcerts(): There are " + allDates.size() + " concert dates");
+        int threads = Math.max(1, Math.min(groups.size(), Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors())));
+        if (threads == 1) {
+            int seatCount = 0;
+            for (List<LocalDateTime> g : groups) {
+                seatCount += persistSeats(g);
+            }
+            return seatCount;
+        }
 
-            // For each concert date, create the seats for that date and persist them.
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (List<LocalDateTime> g : groups) {
+                results.add(executor.submit(() -> persistSeats(g)));
+            }
             int seatCount = 0;
-            for (LocalDateTime date : allDates) {
+            for (Future<Integer> result : results) {
+                seatCount += result.get();
+            }
+            return seatCount;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating seats", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to create seats", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                em.getTransaction().begin();
-                Set<Seat> seatsForDate = TheatreLayout.createSeatsFor(date);
-                for (Seat s : seatsForDate) {
-                    em.persist(s);
-                    seatCount++;
+    /**
+     * Re-applies the bookings in the {@link BookingJournal} that the database doesn't have, e.g. because it was
+     * recreated in memory at startup. A booking whose seats are all booked already is assumed to be in the database and
+     * is skipped; one whose seats are only partly booked conflicts with a booking that isn't in the journal, and is
+     * skipped with a warning. Bookings are committed in batches.
+     * <p>
+     * A {@link SeatSnapshot} only helps a database that outlives the service (the file and server profiles). If the
+     * snapshot's booked seats are all booked in the database, the database already holds every booking up to the
+     * snapshot, and only the records written after it are replayed. The snapshot holds seats, not bookings, so it
+     * can't restore anything itself: when the database has no bookings at all (the memory profile, or a wiped
+     * database), the whole journal is replayed without reading the database's seats. Afterwards a new snapshot is
+     * taken, so the next startup replays as little as possible.
+     *
+     * <p>
+     * Bookings are restored under the IDs they were journalled with, so URIs already handed out to clients still refer
+     * to them, and the booking ID column is then moved on past them.
+     *
+     * @return the number of bookings re-applied
+     */
+    public static int replayBookingJournal() {
+        return replayBookingJournal(BookingJournal.instance());
+    }
+
+    /**
+     * Re-applies the bookings in the given journal that the database doesn't have (see replayBookingJournal()).
+     *
+     * @return the number of bookings re-applied
+     */
+    public static int replayBookingJournal(BookingJournal journal) {
+        if (!journal.isEnabled()) {
+            return 0;
+        }
+
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            SeatRepository seatRepository = new SeatRepository(em);
+            long afterSequence = 0;
+            SeatSnapshot snapshot = readSeatSnapshot(journal);
+            if (snapshot != null) {
+                SeatAvailabilityVersions.instance().restore(snapshot.getVersions());
+                if (!new BookingRepository(em).hasAny()) {
+                    LOGGER.info("replayBookingJournal(): The database has no bookings, replaying the whole journal");
+                } else if (snapshot.isContainedIn(seatRepository.findBookedSeats())) {
+                    afterSequence = snapshot.getSequence();
+                } else {
+                    LOGGER.info("replayBookingJournal(): The database is behind the seat snapshot, replaying the"
+                            + " whole journal");
+                }
+            }
+
+            int[] counts = new int[2];
+            em.getTransaction().begin();
+            long read = journal.replay(afterSequence, record -> {
+                if (replayBooking(em, seatRepository, record)) {
+                    counts[0]++;
+                } else {
+                    counts[1]++;
+                }
+                if ((counts[0] + counts[1]) % BATCH_SIZE == 0) {
+                    em.getTransaction().commit();
+                    em.clear();
+                    em.getTransaction().begin();
                 }
+            });
+            em.getTransaction().commit();
+            if (counts[0] > 0) {
+                em.getTransaction().begin();
+                new BookingRepository(em).restartIds();
                 em.getTransaction().commit();
+            }
+            LOGGER.info("replayBookingJournal(): Re-applied " + counts[0] + " of " + read
+                    + " journalled bookings after record " + afterSequence);
+            SeatSnapshotter.instance().takeSnapshot();
+            return counts[0];
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    /**
+     * Reads the journal's seat snapshot, ignoring one that is newer than the journal itself (left over from a journal
+     * that has since been deleted).
+     */
+    private static SeatSnapshot readSeatSnapshot(BookingJournal journal) {
+        SeatSnapshot snapshot;
+        try {
+            snapshot = SeatSnapshot.read(journal.getDirectory());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the seat snapshot", e);
+        }
+        if (snapshot != null && snapshot.getSequence() > journal.lastSequence()) {
+            LOGGER.warn("readSeatSnapshot(): Ignoring a seat snapshot that is ahead of the journal");
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Books the seats of one journalled booking, under its journalled ID, if none of them are booked yet.
+     *
+     * @return true if the booking was re-applied
+     */
+    private static boolean replayBooking(EntityManager em, SeatRepository seatRepository, BookingRecord record) {
+        List<String> labels = record.getSeatLabels();
+        List<Seat> seats = seatRepository.findByDateAndLabels(record.getDate(), labels);
+        int booked = 0;
+        for (Seat seat : seats) {
+            if (seat.getBookingStatus()) {
+                booked++;
+            }
+        }
+        if (booked == labels.size() || seats.isEmpty()) {
+            // Already applied, or the performance has been archived
+            return false;
+        }
+        if (booked > 0 || seats.size() < labels.size()) {
+            LOGGER.warn("replayBooking(): Skipping journalled booking " + record.getSequence()
+                    + ", which conflicts with the database");
+            return false;
+        }
+        if (record.getBookingId() != 0 && em.find(Booking.class, record.getBookingId()) != null) {
+            LOGGER.warn("replayBooking(): Skipping journalled booking " + record.getSequence()
+                    + ", whose ID " + record.getBookingId() + " is taken by another booking");
+            return false;
+        }
+        for (Seat seat : seats) {
+            seat.setBookingStatus(true);
+        }
+        if (record.getBookingId() == 0) {
+            // Journalled before booking IDs were, so it can only be given a new ID
+            em.persist(new Booking(record.getConcertId(), record.getDate(), new HashSet<>(seats),
+                    em.getReference(User.class, record.getUserId())));
+        } else {
+            em.flush();
+            new BookingRepository(em).insertWithId(record.getBookingId(), record.getConcertId(), record.getDate(),
+                    record.getUserId(), labels);
+        }
+        return true;
+    }
+
+    /**
+     * Runs the catalog script, in a single transaction, the same way Hibernate does when it creates the schema, then
+     * discards everything cached about the catalog.
+     */
+    private static void loadCatalog() {
+        String[] commands;
+        try (InputStream in = ConcertUtils.class.getClassLoader().getResourceAsStream(CATALOG_SCRIPT);
+             Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            commands = new SingleLineSqlCommandExtractor().extractCommands(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + CATALOG_SCRIPT, e);
+        }
 
-                // Ensures we aren't braking the EM with thousands of seat entities.
-                em.clear();
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (String command : commands) {
+                em.createNativeQuery(command).executeUpdate();
             }
+            em.getTransaction().commit();
+            LOGGER.debug("loadCatalog(): Ran " + commands.length + " commands from " + CATALOG_SCRIPT);
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+        PersistenceManager.instance().evictCatalog();
+        CatalogResponseCache.instance().invalidate();
+        CatalogSearchIndex.instance().invalidate();
+    }
 
-            LOGGER.debug("initConcerts(): Created " + seatCount + " seats!");
+    /**
+     * Persists the seats for the given dates in a single transaction.
+     *
+     * @return the number of seats created
+     */
+    private static int persistSeats(List<LocalDateTime> dates) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            int seatCount = 0;
+            for (LocalDateTime date : dates) {
+                for (Seat s : TheatreLayout.createSeatsFor(date)) {
+                    em.persist(s);
+                    seatCount++;
+                    if (seatCount % BATCH_SIZE == 0) {
+                        // Send the batch, and ensure we aren't braking the EM with thousands of seat entities.
+                        em.flush();
+                        em.clear();
+                    }
+                }
+            }
+            em.getTransaction().commit();
+            return seatCount;
         } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
             em.close();
         }
     }
@@ -0,0 +1,21 @@
+package proj.concert.service.util;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing: the items on the page, plus the cursor (the ID of the last item) to pass as
+ * the "after" parameter when requesting the next page. The cursor is null on the last page.
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final Long nextCursor;
+
+    public Page(List<T> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+    public Long getNextCursor() { return nextCursor; }
+}
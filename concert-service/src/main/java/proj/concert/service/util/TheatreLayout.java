@@ -62,6 +62,49 @@ public class TheatreLayout {
 
     }
 
+    /**
+     * Returns the position of a seat in the theatre, counting along each row from A1: A1 is 0, A2 is 1, B1 is
+     * NUM_SEATS_PER_ROW, and so on.
+     *
+     * @param label the seat label, e.g. "C7"
+     * @return the seat index, or -1 if there is no such seat
+     */
+    public static int indexOf(String label) {
+        if (label == null || label.length() < 2) {
+            return -1;
+        }
+        int row = label.charAt(0) - 'A';
+        int seatNum;
+        try {
+            seatNum = Integer.parseInt(label.substring(1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (row < 0 || row >= NUM_ROWS || seatNum < 1 || seatNum > NUM_SEATS_PER_ROW) {
+            return -1;
+        }
+        return row * NUM_SEATS_PER_ROW + seatNum - 1;
+    }
+
+    /**
+     * Returns the label of the seat at the given index (see indexOf).
+     */
+    public static String labelOf(int index) {
+        return "" + (char) ('A' + index / NUM_SEATS_PER_ROW) + (index % NUM_SEATS_PER_ROW + 1);
+    }
+
+    /**
+     * Returns the name of the price band with the given price, or null if there is none.
+     */
+    public static String priceBandNameFor(BigDecimal price) {
+        for (PriceBand band : PRICE_BANDS) {
+            if (band.price.compareTo(price) == 0) {
+                return band.name;
+            }
+        }
+        return null;
+    }
+
     public static class PriceBand {
         public String name;
         public BigDecimal price;
@@ -0,0 +1,59 @@
+package proj.concert.service;
+
+import org.junit.*;
+
+import proj.concert.service.auth.AuthTokens;
+import proj.concert.service.auth.UserPrincipal;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that auth tokens identify the user they were issued to, and that forged or expired tokens are rejected.
+ */
+public class AuthTokensTest {
+
+    private static final byte[] KEY = new byte[32];
+    private static final Instant NOW = Instant.parse("2020-02-15T20:00:00Z");
+
+    private final AuthTokens tokens = new AuthTokens(KEY, 60, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    /**
+     * Tests that a token verifies as the user it was issued to, including a username with separators in it.
+     */
+    @Test
+    public void testRoundTrip() {
+        UserPrincipal principal = tokens.verify(tokens.issue(42, "test:user"));
+
+        assertEquals(42, principal.getId());
+        assertEquals("test:user", principal.getName());
+    }
+
+    /**
+     * Tests that tokens which are altered, signed with another key, expired or malformed are rejected.
+     */
+    @Test
+    public void testInvalidTokensRejected() {
+        String token = tokens.issue(1, "testuser");
+        char last = token.charAt(token.length() - 1);
+        assertNull(tokens.verify(token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A')));
+
+        String forged = tokens.issue(2, "testuser2").split("\\.")[0] + "." + token.split("\\.")[1];
+        assertNull(tokens.verify(forged));
+
+        byte[] otherKey = Arrays.copyOf(KEY, KEY.length);
+        otherKey[0] = 1;
+        assertNull(new AuthTokens(otherKey, 60, Clock.fixed(NOW, ZoneOffset.UTC)).verify(token));
+
+        assertNull(new AuthTokens(KEY, 60, Clock.fixed(NOW.plusSeconds(60), ZoneOffset.UTC)).verify(token));
+        assertNotNull(new AuthTokens(KEY, 60, Clock.fixed(NOW.plusSeconds(59), ZoneOffset.UTC)).verify(token));
+
+        assertNull(tokens.verify("testuser"));
+        assertNull(tokens.verify("not base64!.x"));
+        assertNull(tokens.verify(null));
+    }
+}
@@ -0,0 +1,200 @@
+package proj.concert.service;
+
+import org.junit.*;
+
+import proj.concert.service.journal.BookingJournal;
+import proj.concert.service.journal.BookingRecord;
+import proj.concert.service.journal.JournalCompactor;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the booking journal keeps bookings across restarts, and copes with a damaged or compacted journal.
+ */
+public class BookingJournalTest {
+
+    private static final LocalDateTime EARLY = LocalDateTime.of(2020, 2, 15, 20, 0);
+    private static final LocalDateTime LATE = LocalDateTime.of(2020, 3, 20, 20, 0);
+    private static final int SEGMENT_CAPACITY = 4;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Tests that bookings appended across several segments are all replayed, in order, after the journal is reopened,
+     * and that appending carries on from where it left off.
+     */
+    @Test
+    public void testReplayAfterReopen() {
+        BookingJournal journal = open();
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(i, journal.append(100 + i, 1, EARLY, Arrays.asList("A" + i, "J12"), i));
+        }
+        journal.close();
+
+        journal = open();
+        assertEquals(11, journal.append(0, 2, LATE, Arrays.asList("B1"), 3));
+        List<BookingRecord> records = replay(journal);
+        journal.close();
+
+        assertEquals(11, records.size());
+        for (int i = 0; i < 10; i++) {
+            BookingRecord record = records.get(i);
+            assertEquals(i + 1, record.getSequence());
+            assertEquals(1, record.getConcertId());
+            assertEquals(EARLY, record.getDate());
+            assertEquals(i + 1, record.getUserId());
+            assertEquals(101 + i, record.getBookingId());
+            assertEquals(Arrays.asList("A" + (i + 1), "J12"), record.getSeatLabels());
+        }
+        assertEquals(Arrays.asList("B1"), records.get(10).getSeatLabels());
+    }
+
+    /**
+     * Tests that replaying after a sequence number passes only the later records, across segment boundaries.
+     */
+    @Test
+    public void testReplayAfterSequence() {
+        BookingJournal journal = open();
+        for (int i = 1; i <= 10; i++) {
+            journal.append(0, 1, EARLY, Arrays.asList("A" + i), 1);
+        }
+        assertEquals(10, journal.lastSequence());
+
+        for (long after : new long[]{0, 3, 4, 5, 9, 10}) {
+            List<BookingRecord> records = new ArrayList<>();
+            assertEquals(10 - after, journal.replay(after, records::add));
+            for (int i = 0; i < records.size(); i++) {
+                assertEquals(after + i + 1, records.get(i).getSequence());
+            }
+        }
+        journal.close();
+    }
+
+    /**
+     * Tests that replay stops at a damaged record, and that the next booking takes its place.
+     */
+    @Test
+    public void testReplayStopsAtDamagedRecord() throws IOException {
+        BookingJournal journal = open();
+        for (int i = 1; i <= 3; i++) {
+            journal.append(0, 1, EARLY, Arrays.asList("A" + i), 1);
+        }
+        journal.close();
+
+        // Damage the third record's seats, as a write torn by a crash would
+        Path segment = Files.list(directory).filter(p -> p.toString().endsWith(".journal")).findFirst().get();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(2 * 64 + 40);
+            file.write(0xFF);
+        }
+
+        journal = open();
+        assertEquals(2, replay(journal).size());
+        assertEquals(3, journal.append(0, 1, EARLY, Arrays.asList("A3"), 1));
+        assertEquals(3, replay(journal).size());
+        journal.close();
+    }
+
+    /**
+     * Tests that a damaged record followed by further records, here in a segment before the last, makes replay and
+     * reopening fail, rather than silently dropping the records after it.
+     */
+    @Test
+    public void testDamagedRecordBeforeEndFails() throws IOException {
+        BookingJournal journal = open();
+        for (int i = 1; i <= 6; i++) {
+            journal.append(0, 1, EARLY, Arrays.asList("A" + i), 1);
+        }
+
+        Path segment = Files.list(directory).filter(p -> p.toString().endsWith(".journal")).sorted().findFirst().get();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(64 + 40);
+            file.write(0xFF);
+        }
+        try {
+            replay(journal);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        journal.close();
+
+        // Damage the last segment's first record too, so its later record can't be skipped either
+        segment = Files.list(directory).filter(p -> p.toString().endsWith(".journal")).sorted()
+                .reduce((first, second) -> second).get();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(40);
+            file.write(0xFF);
+        }
+        try {
+            open();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Tests that compaction drops the bookings for past performances, keeps the rest, and is refused while the
+     * journal is open.
+     */
+    @Test
+    public void testCompaction() throws IOException {
+        BookingJournal journal = open();
+        for (int i = 1; i <= 10; i++) {
+            journal.append(0, 1, i % 2 == 0 ? EARLY : LATE, Arrays.asList("C" + i), 1);
+        }
+        try {
+            JournalCompactor.compact(directory, LATE, SEGMENT_CAPACITY);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        journal.close();
+
+        assertEquals(5, JournalCompactor.compact(directory, LATE, SEGMENT_CAPACITY));
+
+        journal = open();
+        List<BookingRecord> records = replay(journal);
+        assertEquals(Arrays.asList(1L, 3L, 5L, 7L, 9L),
+                records.stream().map(BookingRecord::getSequence).collect(Collectors.toList()));
+        assertEquals(11, journal.append(0, 1, LATE, Arrays.asList("D1"), 1));
+        journal.close();
+    }
+
+    private BookingJournal open() {
+        return new BookingJournal(directory, SEGMENT_CAPACITY, 1000);
+    }
+
+    private static List<BookingRecord> replay(BookingJournal journal) {
+        List<BookingRecord> records = new ArrayList<>();
+        journal.replay(records::add);
+        return records;
+    }
+}
@@ -0,0 +1,106 @@
+package proj.concert.service;
+
+import org.junit.*;
+
+import proj.concert.common.dto.BookingRequestDTO;
+import proj.concert.service.auth.UserPrincipal;
+import proj.concert.service.domain.Booking;
+import proj.concert.service.domain.Seat;
+import proj.concert.service.jaxrs.TokenSecurityContext;
+import proj.concert.service.journal.BookingJournal;
+import proj.concert.service.repository.BookingRepository;
+import proj.concert.service.services.ConcertResource;
+import proj.concert.service.services.EntityManagerScope;
+import proj.concert.service.services.PersistenceManager;
+import proj.concert.service.util.ConcertUtils;
+
+import javax.persistence.EntityManager;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that replaying the booking journal into an empty database restores bookings under their original IDs.
+ */
+public class BookingReplayTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2020, 2, 15, 20, 0);
+
+    private Path directory;
+    private BookingJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        PersistenceManager.instance().reset();
+        ConcertUtils.initConcerts();
+        directory = Files.createTempDirectory("journal");
+        journal = new BookingJournal(directory, 4, 1000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+        PersistenceManager.instance().reset();
+    }
+
+    /**
+     * Tests that journalled bookings, with gaps between their IDs, keep their IDs, seats and users when replayed, and
+     * that the next booking made gets an ID after them.
+     */
+    @Test
+    public void testReplayKeepsBookingIds() {
+        journal.append(5, 1, DATE, Arrays.asList("A1", "A2"), 1);
+        journal.append(9, 1, DATE, Collections.singletonList("B1"), 2);
+
+        assertEquals(2, ConcertUtils.replayBookingJournal(journal));
+
+        EntityManager em = PersistenceManager.instance().createReadOnlyEntityManager();
+        try {
+            BookingRepository bookings = new BookingRepository(em);
+            assertBooking(bookings.findWithSeats(5), 1, "A1", "A2");
+            assertBooking(bookings.findWithSeats(9), 2, "B1");
+            assertNull(bookings.findWithSeats(6));
+        } finally {
+            em.close();
+        }
+
+        Response response;
+        try (EntityManagerScope scope = EntityManagerScope.open(false)) {
+            response = new ConcertResource().attemptBooking(
+                    new BookingRequestDTO(1, DATE, Collections.singletonList("C1")),
+                    new TokenSecurityContext(new UserPrincipal(1, "testuser"), false));
+        }
+        assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+        assertTrue(response.getLocation().getPath().endsWith("/bookings/10"));
+
+        // Replaying again finds every booking already applied
+        assertEquals(0, ConcertUtils.replayBookingJournal(journal));
+    }
+
+    private static void assertBooking(Booking booking, long userId, String... labels) {
+        assertNotNull(booking);
+        assertEquals(DATE, booking.getDate());
+        assertEquals(userId, booking.getUser().getId().longValue());
+        List<String> seats = booking.getSeats().stream().map(Seat::getLabel).collect(Collectors.toList());
+        assertEquals(new HashSet<>(Arrays.asList(labels)), new HashSet<>(seats));
+        for (Seat seat : booking.getSeats()) {
+            assertTrue(seat.getBookingStatus());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package proj.concert.service;
+
+import org.hibernate.stat.Statistics;
+import org.junit.*;
+
+import proj.concert.common.dto.BookingRequestDTO;
+import proj.concert.service.auth.UserPrincipal;
+import proj.concert.service.jaxrs.TokenSecurityContext;
+import proj.concert.service.services.ConcertResource;
+import proj.concert.service.services.EntityManagerScope;
+import proj.concert.service.services.PersistenceManager;
+import proj.concert.service.util.ConcertUtils;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that making a booking never loads the user or their existing bookings.
+ */
+public class BookingWritePathTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2020, 2, 15, 20, 0);
+    private static final SecurityContext TESTUSER = new TokenSecurityContext(new UserPrincipal(1, "testuser"), false);
+
+    @Before
+    public void setUp() {
+        PersistenceManager.instance().reset();
+        ConcertUtils.initConcerts();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        PersistenceManager.instance().reset();
+    }
+
+    /**
+     * Tests that bookings are saved without loading the user or initializing User.bookings, however many bookings the
+     * user already has.
+     */
+    @Test
+    public void testBookingDoesNotLoadUserBookings() {
+        ConcertResource resource = new ConcertResource();
+        Statistics statistics = PersistenceManager.instance().getStatistics();
+        statistics.clear();
+
+        for (String label : new String[]{"A1", "A2", "A3"}) {
+            assertEquals(Response.Status.CREATED.getStatusCode(), book(resource, label, TESTUSER).getStatus());
+        }
+
+        assertEquals(0, statistics.getCollectionStatistics(
+                "proj.concert.service.domain.User.bookings").getLoadCount());
+        assertEquals(0, statistics.getEntityStatistics("proj.concert.service.domain.User").getLoadCount());
+    }
+
+    /**
+     * Tests that a booking without a valid auth token is refused, and books no seats.
+     */
+    @Test
+    public void testUnauthenticatedBookingRefused() {
+        ConcertResource resource = new ConcertResource();
+
+        assertEquals(Response.Status.UNAUTHORIZED.getStatusCode(),
+                book(resource, "B1", new TokenSecurityContext(null, false)).getStatus());
+        assertEquals(Response.Status.CREATED.getStatusCode(), book(resource, "B1", TESTUSER).getStatus());
+    }
+
+    private static Response book(ConcertResource resource, String label, SecurityContext user) {
+        try (EntityManagerScope scope = EntityManagerScope.open(false)) {
+            return resource.attemptBooking(
+                    new BookingRequestDTO(1, DATE, Collections.singletonList(label)), user);
+        }
+    }
+}
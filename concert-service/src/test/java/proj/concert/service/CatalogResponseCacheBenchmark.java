@@ -0,0 +1,105 @@
+package proj.concert.service;
+
+import org.junit.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import proj.concert.service.cache.CatalogResponseCache;
+import proj.concert.service.jaxrs.CatalogQueryParams;
+import proj.concert.service.services.ConcertResource;
+import proj.concert.service.services.EntityManagerScope;
+import proj.concert.service.services.PersistenceManager;
+import proj.concert.service.util.ConcertUtils;
+
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the throughput (bytes of JSON produced per second) of the catalog endpoints when every request is queried
+ * and serialized from scratch, against requests served from the {@link CatalogResponseCache}.
+ * <p>
+ * Benchmarks are excluded from the normal build. Run with:
+ * <code>mvn -pl concert-service test -Dtest=CatalogResponseCacheBenchmark</code>
+ */
+public class CatalogResponseCacheBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CatalogResponseCacheBenchmark.class);
+
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 2000;
+
+    private ConcertResource resource;
+
+    @BeforeClass
+    public static void setUpDatabase() {
+        PersistenceManager.instance().reset();
+        ConcertUtils.initConcerts();
+    }
+
+    @Before
+    public void setUp() {
+        resource = new ConcertResource();
+        CatalogResponseCache.instance().invalidate();
+    }
+
+    @Test
+    public void benchmarkGetAllConcerts() {
+        compare("/concerts", () -> resource.getAllConcerts(new CatalogQueryParams(), null, null));
+    }
+
+    @Test
+    public void benchmarkGetAllPerformers() {
+        compare("/performers", () -> resource.getAllPerformers(new CatalogQueryParams(), null, null));
+    }
+
+    @Test
+    public void benchmarkRetrieveConcert() {
+        compare("/concerts/4", () -> resource.retrieveConcert(4, null));
+    }
+
+    private void compare(String name, Endpoint endpoint) {
+        // Invalidating before every call reproduces the uncached path: query, map and serialize each time.
+        double uncached = run(endpoint, true);
+        double cached = run(endpoint, false);
+
+        LOGGER.info(String.format("%-12s uncached: %10.1f KB/s   cached: %10.1f KB/s   speedup: %.1fx",
+                name, uncached / 1024, cached / 1024, cached / uncached));
+
+        assertTrue(cached > uncached);
+    }
+
+    private double run(Endpoint endpoint, boolean invalidateEachTime) {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            write(endpoint, invalidateEachTime, sink);
+        }
+
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            bytes += write(endpoint, invalidateEachTime, sink);
+        }
+        long elapsed = System.nanoTime() - start;
+        return bytes / (elapsed / 1_000_000_000.0);
+    }
+
+    private int write(Endpoint endpoint, boolean invalidate, ByteArrayOutputStream sink) {
+        if (invalidate) {
+            CatalogResponseCache.instance().invalidate();
+        }
+        Response response;
+        try (EntityManagerScope scope = EntityManagerScope.open(true)) {
+            response = endpoint.call();
+        }
+        byte[] body = (byte[]) response.getEntity();
+        sink.reset();
+        sink.write(body, 0, body.length);
+        return body.length;
+    }
+
+    private interface Endpoint {
+        Response call();
+    }
+}
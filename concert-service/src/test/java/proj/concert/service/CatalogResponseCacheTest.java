@@ -0,0 +1,58 @@
+package proj.concert.service;
+
+import org.junit.*;
+
+import proj.concert.service.cache.CatalogResponseCache;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the catalog response cache keeps caching new responses once full, by dropping the least recently used.
+ */
+public class CatalogResponseCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        CatalogResponseCache.instance().invalidate();
+    }
+
+    @After
+    public void tearDown() {
+        CatalogResponseCache.instance().invalidate();
+    }
+
+    /**
+     * Tests that filling the cache past its limit evicts the least recently used key, keeps recently used ones, and still
+     * caches the newest key.
+     */
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        CatalogResponseCache cache = CatalogResponseCache.instance();
+        for (int i = 0; i < 1000; i++) {
+            get(cache, "key" + i);
+        }
+        // Use key0, so key1 becomes the least recently used
+        get(cache, "key0");
+        assertEquals(1000, loads.get());
+
+        get(cache, "key1000");
+        get(cache, "key1000");
+        get(cache, "key0");
+        assertEquals(1001, loads.get());
+
+        get(cache, "key1");
+        assertEquals(1002, loads.get());
+    }
+
+    private void get(CatalogResponseCache cache, String key) {
+        cache.get(key, () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList(key);
+        });
+    }
+}
@@ -0,0 +1,126 @@
+package proj.concert.service;
+
+import org.hibernate.stat.Statistics;
+import org.junit.*;
+
+import proj.concert.common.dto.ConcertSummaryDTO;
+import proj.concert.common.types.Genre;
+import proj.concert.service.domain.Concert;
+import proj.concert.service.domain.Performer;
+import proj.concert.service.search.CatalogSearchIndex;
+import proj.concert.service.services.PersistenceManager;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks searches against the seeded catalog, and that the search index follows changes to concerts and performers.
+ */
+public class CatalogSearchIndexTest {
+
+    private CatalogSearchIndex index;
+
+    @Before
+    public void setUp() {
+        PersistenceManager.instance().reset();
+        index = CatalogSearchIndex.instance();
+        index.invalidate();
+    }
+
+    @After
+    public void tearDown() {
+        PersistenceManager.instance().reset();
+        index.invalidate();
+    }
+
+    /**
+     * Tests that words match regardless of case and accents, and as prefixes of indexed words.
+     */
+    @Test
+    public void testCaseFoldedPrefixSearch() {
+        assertEquals(List.of(5L), search("KiSs"));
+        assertEquals(List.of(8L), search("mend"));
+        assertEquals(List.of(8L), search("M\u00e9ndes"));
+    }
+
+    /**
+     * Tests that every word in the query must match, and that performer names and genres are searched.
+     */
+    @Test
+    public void testAllWordsMustMatch() {
+        assertEquals(List.of(7L), search("little mix"));
+        assertEquals(List.of(8L), search("shawn ruel"));
+        assertEquals(List.of(6L), search("blues"));
+        assertTrue(search("little ruel").isEmpty());
+    }
+
+    /**
+     * Tests that a title match ranks above a match only in another concert's blurb.
+     */
+    @Test
+    public void testTitleMatchesRankFirst() {
+        List<Long> results = search("tour");
+        assertTrue(results.size() > 1);
+        assertTrue(List.of(1L, 3L, 5L, 6L, 7L).containsAll(results.subList(0, 5)));
+    }
+
+    /**
+     * Tests that once built, searches are answered without any SQL.
+     */
+    @Test
+    public void testSearchDoesNotQueryDatabase() {
+        search("pop");
+        Statistics statistics = PersistenceManager.instance().getStatistics();
+        statistics.clear();
+
+        search("bastille doom");
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Tests that added and updated concerts and performers are reindexed before the next search.
+     */
+    @Test
+    public void testIndexFollowsCatalogChanges() {
+        assertTrue(search("zydeco").isEmpty());
+
+        Long concertId;
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Performer performer = new Performer(100L, "Zydeco Ramblers", "performers/z.jpg", Genre.Rock, "");
+            em.persist(performer);
+            Concert concert = new Concert("Bayou Nights", "concerts/z.jpg", "");
+            concert.getPerformers().add(performer);
+            em.persist(concert);
+            em.getTransaction().commit();
+            concertId = concert.getId();
+        } finally {
+            em.close();
+        }
+        assertEquals(List.of(concertId), search("zydeco"));
+
+        em = PersistenceManager.instance().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.find(Performer.class, 100L).setName("Cajun Ramblers");
+            em.find(Concert.class, concertId).setTitle("Swamp Nights");
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        assertTrue(search("zydeco").isEmpty());
+        assertTrue(search("bayou").isEmpty());
+        assertEquals(List.of(concertId), search("cajun swamp"));
+    }
+
+    private List<Long> search(String query) {
+        return index.search(query, CatalogSearchIndex.DEFAULT_LIMIT).stream()
+                .map(ConcertSummaryDTO::getId)
+                .collect(Collectors.toList());
+    }
+}
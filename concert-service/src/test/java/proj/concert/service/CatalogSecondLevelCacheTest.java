@@ -0,0 +1,97 @@
+package proj.concert.service;
+
+import org.hibernate.stat.Statistics;
+import org.junit.*;
+
+import proj.concert.service.cache.CatalogResponseCache;
+import proj.concert.service.jaxrs.CatalogQueryParams;
+import proj.concert.service.services.ConcertResource;
+import proj.concert.service.services.EntityManagerScope;
+import proj.concert.service.services.PersistenceManager;
+
+import javax.ws.rs.core.Response;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that concerts, performers and concert dates are served from the Hibernate second-level cache once loaded,
+ * and that evicting the catalog sends the next read back to the database.
+ */
+public class CatalogSecondLevelCacheTest {
+
+    private ConcertResource resource;
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        PersistenceManager.instance().reset();
+        CatalogResponseCache.instance().invalidate();
+        resource = new ConcertResource();
+        statistics = PersistenceManager.instance().getStatistics();
+    }
+
+    @After
+    public void tearDown() {
+        PersistenceManager.instance().reset();
+        CatalogResponseCache.instance().invalidate();
+    }
+
+    /**
+     * Tests that once a concert has been loaded, loading it again (bypassing the response cache) issues no SQL.
+     */
+    @Test
+    public void testConcertServedFromSecondLevelCache() {
+        assertEquals(Response.Status.OK.getStatusCode(), retrieveConcert(1).getStatus());
+
+        statistics.clear();
+        assertEquals(Response.Status.OK.getStatusCode(), retrieveConcert(1).getStatus());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+        assertEquals(0, statistics.getSecondLevelCacheMissCount());
+    }
+
+    /**
+     * Tests that repeating a catalog listing is answered from the query cache.
+     */
+    @Test
+    public void testListingServedFromQueryCache() {
+        getAllPerformers();
+
+        statistics.clear();
+        getAllPerformers();
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    /**
+     * Tests that evicting the catalog causes concerts to be reloaded from the database.
+     */
+    @Test
+    public void testEvictCatalog() {
+        retrieveConcert(1);
+        PersistenceManager.instance().evictCatalog();
+
+        statistics.clear();
+        retrieveConcert(1);
+
+        assertTrue(statistics.getPrepareStatementCount() > 0);
+        assertEquals(0, statistics.getSecondLevelCacheHitCount());
+    }
+
+    private Response retrieveConcert(long id) {
+        CatalogResponseCache.instance().invalidate();
+        // Each call is a separate request, with its own EntityManager
+        try (EntityManagerScope scope = EntityManagerScope.open(true)) {
+            return resource.retrieveConcert(id, null);
+        }
+    }
+
+    private void getAllPerformers() {
+        CatalogResponseCache.instance().invalidate();
+        try (EntityManagerScope scope = EntityManagerScope.open(true)) {
+            resource.getAllPerformers(new CatalogQueryParams(), null, null);
+        }
+    }
+}
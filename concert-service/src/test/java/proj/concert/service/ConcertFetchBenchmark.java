@@ -0,0 +1,159 @@
+package proj.concert.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import proj.concert.common.dto.ConcertDTO;
+import proj.concert.common.types.Genre;
+import proj.concert.service.cache.CatalogResponseCache;
+import proj.concert.service.domain.Concert;
+import proj.concert.service.domain.Performer;
+import proj.concert.service.jaxrs.CatalogQueryParams;
+import proj.concert.service.services.ConcertResource;
+import proj.concert.service.services.EntityManagerScope;
+import proj.concert.service.services.PersistenceManager;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static proj.concert.service.mapper.ConcertMapper.toConcertDto;
+
+/**
+ * Compares loading a large synthetic catalog through GET /concerts against the previous strategy of join fetching
+ * performers and dates in a single query, reporting SQL rows read and time per request.
+ * <p>
+ * Benchmarks are excluded from the normal build. Run with:
+ * <code>mvn -pl concert-service test -Dtest=ConcertFetchBenchmark</code>
+ */
+public class ConcertFetchBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcertFetchBenchmark.class);
+
+    private static final int CONCERTS = 200;
+    private static final int PERFORMERS_PER_CONCERT = 5;
+    private static final int DATES_PER_CONCERT = 40;
+    private static final int ITERATIONS = 20;
+
+    private static Statistics statistics;
+
+    @BeforeClass
+    public static void createCatalog() {
+        PersistenceManager.instance().reset();
+
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            long performerId = 1000;
+            for (int i = 0; i < CONCERTS; i++) {
+                Concert concert = new Concert("Synthetic Tour " + i, "concerts/synthetic.jpg", "Synthetic concert " + i);
+                for (int p = 0; p < PERFORMERS_PER_CONCERT; p++) {
+                    Performer performer = new Performer(performerId, "Synthetic Act " + performerId,
+                            "performers/synthetic.jpg", Genre.Pop, "Synthetic performer " + performerId);
+                    performerId++;
+                    em.persist(performer);
+                    concert.getPerformers().add(performer);
+                }
+                for (int d = 0; d < DATES_PER_CONCERT; d++) {
+                    concert.getDates().add(LocalDateTime.of(2021, 1, 1, 20, 0).plusDays(d));
+                }
+                em.persist(concert);
+            }
+            em.getTransaction().commit();
+
+            statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        } finally {
+            em.close();
+        }
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        PersistenceManager.instance().reset();
+        CatalogResponseCache.instance().invalidate();
+    }
+
+    @Test
+    public void benchmarkGetAllConcerts() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        ConcertResource resource = new ConcertResource();
+
+        Result joined = run(() -> {
+            EntityManager em = PersistenceManager.instance().createEntityManager();
+            try {
+                List<Concert> concerts = em.createQuery(
+                        "SELECT DISTINCT c FROM Concert c LEFT JOIN FETCH c.performers LEFT JOIN FETCH c.dates",
+                        Concert.class).getResultList();
+                List<ConcertDTO> dtos = new ArrayList<>();
+                for (Concert c : concerts) {
+                    dtos.add(toConcertDto(c));
+                }
+                return mapper.writeValueAsBytes(dtos).length;
+            } finally {
+                em.close();
+            }
+        });
+
+        Result split = run(() -> {
+            // Bypass the response and second-level caches so every request goes to the database
+            CatalogResponseCache.instance().invalidate();
+            PersistenceManager.instance().evictCatalog();
+            try (EntityManagerScope scope = EntityManagerScope.open(true)) {
+                return ((byte[]) resource.getAllConcerts(new CatalogQueryParams(null, CatalogQueryParams.MAX_LIMIT), null, null).getEntity()).length;
+            }
+        });
+
+        LOGGER.info(String.format("single join fetch: %6d rows/request %8.2f ms/request", joined.rows, joined.millis));
+        LOGGER.info(String.format("split fetch:       %6d rows/request %8.2f ms/request", split.rows, split.millis));
+
+        assertEquals(joined.bytes, split.bytes);
+        // The seeded concerts are still present, so rows are at least (not exactly) one per performer and date
+        assertTrue(split.rows >= CONCERTS * (PERFORMERS_PER_CONCERT + DATES_PER_CONCERT));
+        assertTrue(split.rows < joined.rows);
+    }
+
+    private Result run(Request request) throws Exception {
+        // Warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            request.call();
+        }
+
+        statistics.clear();
+        int bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            bytes = request.call();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long rows = 0;
+        for (String query : statistics.getQueries()) {
+            rows += statistics.getQueryStatistics(query).getExecutionRowCount();
+        }
+        return new Result(rows / ITERATIONS, elapsed / 1_000_000.0 / ITERATIONS, bytes);
+    }
+
+    private interface Request {
+        int call() throws Exception;
+    }
+
+    private static class Result {
+        final long rows;
+        final double millis;
+        final int bytes;
+
+        Result(long rows, double millis, int bytes) {
+            this.rows = rows;
+            this.millis = millis;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -10,12 +10,16 @@ import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -231,6 +235,119 @@ public class ConcertResourceIT {
 
     }
 
+    /**
+     * Tests that concerts can be paged through with a limit, following the rel="next" Link header until the last page,
+     * and that every concert is returned exactly once.
+     */
+    @Test
+    public void testGetConcertsPaginated() {
+
+        List<ConcertDTO> concerts = new ArrayList<>();
+        String uri = WEB_SERVICE_URI + "/concerts?limit=3";
+        int pages = 0;
+        while (uri != null) {
+            Response response = client.target(uri).request().get();
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            List<ConcertDTO> page = response.readEntity(new GenericType<List<ConcertDTO>>() {
+            });
+            assertTrue(page.size() <= 3);
+            concerts.addAll(page);
+            pages++;
+            uri = response.getLink("next") == null ? null : response.getLink("next").getUri().toString();
+        }
+
+        assertEquals(3, pages);
+        assertEquals(8, concerts.size());
+        for (int i = 0; i < concerts.size(); i++) {
+            assertEquals(Long.valueOf(i + 1), concerts.get(i).getId());
+        }
+    }
+
+    /**
+     * Tests that concerts can be filtered by genre, performer and date range.
+     */
+    @Test
+    public void testGetConcertsFiltered() {
+
+        List<ConcertDTO> theatre = client.target(WEB_SERVICE_URI + "/concerts?genre=Theatre")
+                .request().get(new GenericType<List<ConcertDTO>>() {
+                });
+        assertEquals(1, theatre.size());
+        assertEquals("Hugh Jackman: The Man. The Music. The Show.", theatre.get(0).getTitle());
+
+        List<ConcertDTO> withRobinson = client.target(WEB_SERVICE_URI + "/concerts?performer=9")
+                .request().get(new GenericType<List<ConcertDTO>>() {
+                });
+        assertEquals(1, withRobinson.size());
+        assertEquals("Little Mix: LM5 Tour", withRobinson.get(0).getTitle());
+
+        List<ConcertDTO> earlySeptember = client
+                .target(WEB_SERVICE_URI + "/concerts?from=2019-09-01T00:00:00&to=2019-09-10T00:00:00")
+                .request().get(new GenericType<List<ConcertDTO>>() {
+                });
+        assertEquals(1, earlySeptember.size());
+        assertEquals(Long.valueOf(4), earlySeptember.get(0).getId());
+        // All of the concert's dates are returned, not just those in the range
+        assertEquals(2, earlySeptember.get(0).getDates().size());
+    }
+
+    /**
+     * Tests that concerts can be searched by words (or word prefixes) from their titles and performers, and that a
+     * search without a query is rejected.
+     */
+    @Test
+    public void testSearchConcerts() {
+
+        List<ConcertSummaryDTO> results = client.target(WEB_SERVICE_URI + "/search?q=Shawn%20RU")
+                .request().get(new GenericType<List<ConcertSummaryDTO>>() {
+                });
+        assertEquals(1, results.size());
+        assertEquals("Shawn Mendes, with special guest Ruel", results.get(0).getTitle());
+
+        Response response = client.target(WEB_SERVICE_URI + "/search").request().get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
+    /**
+     * Tests that performers can be filtered by genre and paginated.
+     */
+    @Test
+    public void testGetPerformersFilteredAndPaginated() {
+
+        Response response = client.target(WEB_SERVICE_URI + "/performers?genre=Pop&limit=4").request().get();
+        List<PerformerDTO> firstPage = response.readEntity(new GenericType<List<PerformerDTO>>() {
+        });
+        assertEquals(4, firstPage.size());
+        assertNotNull(response.getLink("next"));
+
+        List<PerformerDTO> secondPage = client.target(response.getLink("next").getUri())
+                .request().get(new GenericType<List<PerformerDTO>>() {
+                });
+        assertEquals(1, secondPage.size());
+        assertEquals("Ruel", secondPage.get(0).getName());
+    }
+
+    /**
+     * Tests that catalog responses carry an ETag, and that repeating the request with that ETag in an If-None-Match
+     * header returns a 304 response with no body.
+     */
+    @Test
+    public void testGetAllConcertsNotModified() {
+
+        Response response = client.target(WEB_SERVICE_URI + "/concerts").request().get();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        EntityTag etag = response.getEntityTag();
+        assertNotNull(etag);
+        response.close();
+
+        Response notModified = client.target(WEB_SERVICE_URI + "/concerts").request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag.toString()).get();
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), notModified.getStatus());
+        assertFalse(notModified.hasEntity());
+        notModified.close();
+
+    }
+
     /**
      * Tests that a 401 error is returned when an incorrect username is supplied on login, and makes sure that
      * no authentication token is generated.
@@ -264,9 +381,35 @@ public class ConcertResourceIT {
         // Log in
         Response loginResponse = login(client, "testuser", "pa55word");
         assertEquals(Response.Status.OK.getStatusCode(), loginResponse.getStatus());
-        Cookie authCookie = loginResponse.getCookies().get("auth");
+        NewCookie authCookie = loginResponse.getCookies().get("auth");
         assertNotNull(authCookie.getValue());
         assertFalse(authCookie.getValue().isEmpty());
+        assertTrue(authCookie.isHttpOnly());
+        assertFalse(authCookie.isSecure());
+        assertEquals(86400, authCookie.getMaxAge());
+    }
+
+    /**
+     * Tests that once too many login attempts have been made for a username, further attempts are refused with a 429
+     * error, even with the right password, while other users can still log in.
+     */
+    @Test
+    public void testRepeatedLoginsThrottled() {
+        for (int i = 0; i < 10; i++) {
+            Response loginResponse = login(client, "testuser2", "wrong");
+            assertEquals(Response.Status.UNAUTHORIZED.getStatusCode(), loginResponse.getStatus());
+            loginResponse.close();
+        }
+
+        Response loginResponse = login(client, "testuser2", "pa55word");
+        assertEquals(Response.Status.TOO_MANY_REQUESTS.getStatusCode(), loginResponse.getStatus());
+        assertNotNull(loginResponse.getHeaderString(HttpHeaders.RETRY_AFTER));
+        assertNull(loginResponse.getCookies().get("auth"));
+        loginResponse.close();
+
+        loginResponse = login(client, "testuser", "pa55word");
+        assertEquals(Response.Status.OK.getStatusCode(), loginResponse.getStatus());
+        loginResponse.close();
     }
 
     /**
@@ -664,6 +807,126 @@ public class ConcertResourceIT {
         }
     }
 
+    /**
+     * Tests that the seat availability of each of a concert's dates can be queried, overall and by price band.
+     */
+    @Test
+    public void testGetAvailabilityForConcert() {
+        // Log in
+        login(client, "testuser", "pa55word");
+
+        // Book some seats, one Platinum and one Silver
+        attemptBooking(client, 4, LocalDateTime.of(2019, 9, 7, 20, 0, 0), "A1", "J12");
+
+        List<AvailabilityDTO> availability = client.target(WEB_SERVICE_URI + "/concerts/4/availability")
+                .request().get(new GenericType<List<AvailabilityDTO>>() {
+                });
+
+        assertEquals(2, availability.size());
+        assertEquals(LocalDateTime.of(2019, 9, 6, 20, 0, 0), availability.get(0).getDate());
+        assertEquals(0, availability.get(0).getBooked());
+
+        AvailabilityDTO booked = availability.get(1);
+        assertEquals(LocalDateTime.of(2019, 9, 7, 20, 0, 0), booked.getDate());
+        assertEquals(120, booked.getTotal());
+        assertEquals(2, booked.getBooked());
+        assertEquals(118, booked.getRemaining());
+        assertEquals(3, booked.getPriceBands().size());
+        assertEquals("Platinum Seating", booked.getPriceBands().get(0).getName());
+        assertEquals(59, booked.getPriceBands().get(0).getRemaining());
+        assertEquals(36, booked.getPriceBands().get(1).getRemaining());
+        assertEquals(23, booked.getPriceBands().get(2).getRemaining());
+
+        Response response = client.target(WEB_SERVICE_URI + "/concerts/100/availability").request().get();
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+    }
+
+    /**
+     * Tests that the booking page for a performance returns the concert and the seats booked for that date, including
+     * seats booked after the page was first retrieved, and flags dates the concert doesn't play on. A conditional
+     * request is answered with 304 until a seat for the date is booked.
+     */
+    @Test
+    public void testGetBookingPage() {
+        String pageUri = WEB_SERVICE_URI + "/performances/4/2019-09-07T20:00:00/page";
+        Response response = client.target(pageUri).request().get();
+        EntityTag etag = response.getEntityTag();
+        assertNotNull(etag);
+        BookingPageDTO page = response.readEntity(BookingPageDTO.class);
+        assertEquals(4, page.getConcert().getId().longValue());
+        assertTrue(page.isValidDate());
+        assertTrue(page.getBookedSeats().isEmpty());
+
+        // Unchanged, so the client's copy is still current
+        response = client.target(pageUri).request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+        response.close();
+
+        login(client, "testuser", "pa55word");
+        attemptBooking(client, 4, LocalDateTime.of(2019, 9, 7, 20, 0, 0), "A1", "J12");
+
+        response = client.target(pageUri).request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertNotEquals(etag, response.getEntityTag());
+        page = response.readEntity(BookingPageDTO.class);
+        assertEquals(new HashSet<>(Arrays.asList("A1", "J12")), new HashSet<>(page.getBookedSeats()));
+
+        page = client.target(WEB_SERVICE_URI + "/performances/4/2020-02-15T20:00:00/page")
+                .request().get(BookingPageDTO.class);
+        assertFalse(page.isValidDate());
+        assertTrue(page.getBookedSeats().isEmpty());
+
+        response = client.target(WEB_SERVICE_URI + "/performances/100/2019-09-07T20:00:00/page")
+                .request().get();
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+        response.close();
+    }
+
+    /**
+     * Tests that a 400 error is returned when retrieving seats with a missing or unknown booking status.
+     */
+    @Test
+    public void testGetSeatsWithInvalidStatus() {
+        Response response = client.target(WEB_SERVICE_URI + "/seats/2020-02-15T20:00:00?status=Reserved").request().get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+        response.close();
+
+        response = client.target(WEB_SERVICE_URI + "/seats/2020-02-15T20:00:00").request().get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+        response.close();
+    }
+
+    /**
+     * Tests that polling seats with the last ETag returns 304 until a booking for that date is made, after which the
+     * full (updated) seat list is returned again.
+     */
+    @Test
+    public void testGetBookedSeatsNotModifiedUntilBooking() {
+        String seatsUri = WEB_SERVICE_URI + "/seats/2020-02-15T20:00:00?status=Booked";
+
+        Response response = client.target(seatsUri).request().get();
+        EntityTag etag = response.getEntityTag();
+        assertNotNull(etag);
+        response.close();
+
+        Response notModified = client.target(seatsUri).request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag.toString()).get();
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), notModified.getStatus());
+        notModified.close();
+
+        // Book some seats, which should change the version
+        login(client, "testuser", "pa55word");
+        attemptBooking(client, 1, LocalDateTime.of(2020, 2, 15, 20, 0, 0), "C5", "C6").close();
+
+        Response modified = client.target(seatsUri).request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag.toString()).get();
+        assertEquals(Response.Status.OK.getStatusCode(), modified.getStatus());
+        assertNotEquals(etag, modified.getEntityTag());
+        List<SeatDTO> bookedSeats = modified.readEntity(new GenericType<List<SeatDTO>>() {
+        });
+        assertEquals(2, bookedSeats.size());
+    }
+
     // Tests for publish / subscribe functions - uncomment when ready.
     // --------------------------------------------------------------------
 
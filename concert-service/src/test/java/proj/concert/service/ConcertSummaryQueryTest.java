@@ -0,0 +1,120 @@
+package proj.concert.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.*;
+
+import proj.concert.common.dto.ConcertSummaryDTO;
+import proj.concert.common.types.Genre;
+import proj.concert.service.cache.CatalogResponseCache;
+import proj.concert.service.domain.Concert;
+import proj.concert.service.domain.Performer;
+import proj.concert.service.jaxrs.CatalogQueryParams;
+import proj.concert.service.services.ConcertResource;
+import proj.concert.service.services.EntityManagerScope;
+import proj.concert.service.services.PersistenceManager;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the cost of GET /concerts/summaries stays proportional to the number of concerts: one SQL statement,
+ * returning one row per concert, no matter how many performers and dates each concert has.
+ */
+public class ConcertSummaryQueryTest {
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        PersistenceManager.instance().reset();
+        CatalogResponseCache.instance().invalidate();
+
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        } finally {
+            em.close();
+        }
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        PersistenceManager.instance().reset();
+        CatalogResponseCache.instance().invalidate();
+    }
+
+    /**
+     * Tests that the seeded catalog's summaries are loaded with a single statement reading one row per concert.
+     */
+    @Test
+    public void testSummariesUseSingleProjectionQuery() {
+        List<ConcertSummaryDTO> summaries = getSummaries();
+
+        assertEquals(8, summaries.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(8, executionRowCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+    }
+
+    /**
+     * Tests that adding a concert with many performers and dates only adds a single row to the summaries query.
+     */
+    @Test
+    public void testSummaryRowsDoNotGrowWithPerformersAndDates() {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Concert concert = new Concert("Touring Festival", "concerts/festival.jpg", "A very long tour.");
+            for (long i = 0; i < 5; i++) {
+                Performer performer = new Performer(100 + i, "Festival Act " + i, "performers/act.jpg", Genre.Pop, "");
+                em.persist(performer);
+                concert.getPerformers().add(performer);
+            }
+            for (int day = 1; day <= 40; day++) {
+                concert.getDates().add(LocalDateTime.of(2021, 1, 1, 20, 0).plusDays(day));
+            }
+            em.persist(concert);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+
+        List<ConcertSummaryDTO> summaries = getSummaries();
+
+        assertEquals(9, summaries.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(9, executionRowCount());
+    }
+
+    private List<ConcertSummaryDTO> getSummaries() {
+        statistics.clear();
+        byte[] body;
+        try (EntityManagerScope scope = EntityManagerScope.open(true)) {
+            body = (byte[]) new ConcertResource().getSummaries(new CatalogQueryParams(), null, null).getEntity();
+        }
+        try {
+            return new ObjectMapper().readValue(body, new TypeReference<List<ConcertSummaryDTO>>() {
+            });
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private long executionRowCount() {
+        long rows = 0;
+        for (String query : statistics.getQueries()) {
+            rows += statistics.getQueryStatistics(query).getExecutionRowCount();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,72 @@
+package proj.concert.service;
+
+import org.junit.*;
+
+import proj.concert.service.datasource.PoolMetrics;
+import proj.concert.service.datasource.PoolMetricsTrackerFactory;
+import proj.concert.service.services.PersistenceManager;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that connections come from a single pool whose metrics are reported, and that pool settings can be
+ * overridden with system properties.
+ */
+public class ConnectionPoolTest {
+
+    @After
+    public void tearDown() {
+        System.clearProperty("hibernate.hikari.maximumPoolSize");
+        PersistenceManager.instance().reset();
+    }
+
+    /**
+     * Tests that connection acquisitions are recorded against the pool.
+     */
+    @Test
+    public void testPoolMetricsRecorded() {
+        PersistenceManager.instance().reset();
+        countConcerts();
+
+        PoolMetrics pool = onlyPool();
+        long acquisitions = pool.getAcquisitions();
+        assertTrue(acquisitions > 0);
+        assertEquals(20, pool.getMaxConnections());
+
+        countConcerts();
+        assertEquals(acquisitions + 1, pool.getAcquisitions());
+        assertTrue(pool.getMaxAcquireMillis() >= pool.getMeanAcquireMillis());
+        assertEquals(0, pool.getTimeouts());
+    }
+
+    /**
+     * Tests that a pool setting given as a system property overrides persistence.xml.
+     */
+    @Test
+    public void testPoolSettingOverriddenBySystemProperty() {
+        System.setProperty("hibernate.hikari.maximumPoolSize", "3");
+        PersistenceManager.instance().reset();
+        countConcerts();
+
+        assertEquals(3, onlyPool().getMaxConnections());
+    }
+
+    private static void countConcerts() {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            em.createQuery("SELECT COUNT(c) FROM Concert c", Long.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static PoolMetrics onlyPool() {
+        // Pools are unregistered when closed, so only the current EntityManagerFactory's pool is listed
+        Collection<PoolMetrics> pools = PoolMetricsTrackerFactory.getPools();
+        assertEquals(1, pools.size());
+        return pools.iterator().next();
+    }
+}
@@ -0,0 +1,111 @@
+package proj.concert.service;
+
+import org.junit.*;
+
+import proj.concert.service.jaxrs.EntityManagerScopeListener;
+import proj.concert.service.services.EntityManagerScope;
+import proj.concert.service.services.PersistenceManager;
+
+import javax.persistence.EntityManager;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that resource methods share one EntityManager per request, that it is closed even if the request fails, and
+ * that resetting the PersistenceManager doesn't break EntityManagers that are still in use.
+ */
+public class EntityManagerScopeTest {
+
+    @After
+    public void tearDown() {
+        PersistenceManager.instance().reset();
+    }
+
+    /**
+     * Tests that a scope hands out the same EntityManager until it is closed, and closes it.
+     */
+    @Test
+    public void testScopeSharesAndClosesEntityManager() {
+        EntityManager em;
+        try (EntityManagerScope scope = EntityManagerScope.open(false)) {
+            em = EntityManagerScope.current();
+            assertSame(em, EntityManagerScope.current());
+            em.getTransaction().begin();
+        }
+
+        assertFalse(em.isOpen());
+        try {
+            EntityManagerScope.current();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected: no scope is open on this thread
+        }
+    }
+
+    /**
+     * Tests that a request's scope, and the transaction it holds, are closed when the servlet container finishes with
+     * the request, as happens when a resource method throws an unmapped exception and the response filter is skipped.
+     */
+    @Test
+    public void testListenerClosesScopeLeftOpen() {
+        Map<String, Object> attributes = new HashMap<>();
+        ServletRequest request = (ServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ServletRequest.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getAttribute")) {
+                        return attributes.get(args[0]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        EntityManagerScope scope = EntityManagerScope.open(false);
+        attributes.put(EntityManagerScope.class.getName(), scope);
+        EntityManager em = EntityManagerScope.current();
+        em.getTransaction().begin();
+
+        ServletContext context = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ServletContext.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        new EntityManagerScopeListener().requestDestroyed(new ServletRequestEvent(context, request));
+
+        assertFalse(em.isOpen());
+        try {
+            EntityManagerScope.current();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected: the scope was removed from this thread
+        }
+    }
+
+    /**
+     * Tests that an EntityManager created before a reset can still be used afterwards, alongside one created after.
+     */
+    @Test
+    public void testEntityManagerSurvivesReset() {
+        EntityManager before = PersistenceManager.instance().createReadOnlyEntityManager();
+        try {
+            PersistenceManager.instance().reset();
+
+            EntityManager after = PersistenceManager.instance().createReadOnlyEntityManager();
+            try {
+                assertEquals(countConcerts(after), countConcerts(before));
+            } finally {
+                after.close();
+            }
+        } finally {
+            before.close();
+        }
+
+        // Closing twice is harmless
+        before.close();
+    }
+
+    private static long countConcerts(EntityManager em) {
+        return em.createQuery("SELECT COUNT(c) FROM Concert c", Long.class).getSingleResult();
+    }
+}
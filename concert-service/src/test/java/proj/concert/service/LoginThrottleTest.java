@@ -0,0 +1,122 @@
+package proj.concert.service;
+
+import org.junit.*;
+
+import proj.concert.service.auth.LoginThrottle;
+import proj.concert.service.auth.LoginThrottle.Limit;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that login attempts are limited per username, per address and overall, and that the limits refill over time.
+ */
+public class LoginThrottleTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    /**
+     * Tests that a username's burst is used up, that its attempts are then refused until a token refills, and that
+     * other usernames are unaffected.
+     */
+    @Test
+    public void testUsernameLimit() {
+        LoginThrottle throttle = newThrottle(100);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.tryAcquire("testuser", "10.0.0." + i));
+        }
+        assertEquals(10, throttle.tryAcquire("testuser", "10.0.0.9"));
+        assertEquals(0, throttle.tryAcquire("testuser2", "10.0.0.9"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        assertEquals(1, throttle.tryAcquire("testuser", "10.0.0.9"));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, throttle.tryAcquire("testuser", "10.0.0.9"));
+
+        assertEquals(5, throttle.getAccepted());
+        assertEquals(2, throttle.getRejectedByUsername());
+    }
+
+    /**
+     * Tests that attempts for many usernames from one address are limited by the address, and that all attempts are
+     * limited by the global limit.
+     */
+    @Test
+    public void testAddressAndGlobalLimits() {
+        LoginThrottle throttle = newThrottle(100);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, throttle.tryAcquire("user" + i, "10.0.0.1"));
+        }
+        assertTrue(throttle.tryAcquire("user5", "10.0.0.1") > 0);
+        assertEquals(1, throttle.getRejectedByAddress());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.tryAcquire("user" + i, "10.0.1." + i));
+        }
+        assertTrue(throttle.tryAcquire("user9", "10.0.1.9") > 0);
+        assertEquals(1, throttle.getRejectedGlobally());
+    }
+
+    /**
+     * Tests that attempts turned away by their address don't use up the username's limit, so they can't lock the user
+     * out.
+     */
+    @Test
+    public void testRejectedAttemptsDoNotSpendUsername() {
+        LoginThrottle throttle = newThrottle(100);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, throttle.tryAcquire("user" + i, "10.0.0.1"));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertTrue(throttle.tryAcquire("victim", "10.0.0.1") > 0);
+        }
+        assertEquals(3, throttle.getRejectedByAddress());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.tryAcquire("victim", "10.0.0.2"));
+        }
+        assertEquals(0, throttle.getRejectedByUsername());
+    }
+
+    /**
+     * Tests that once the maps of buckets are full, the least recently used bucket is dropped to make room, and a
+     * recently used one that is still draining is kept.
+     */
+    @Test
+    public void testBoundedBuckets() {
+        LoginThrottle throttle = newThrottle(2);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.tryAcquire("a", "10.0.0.1"));
+        }
+        assertEquals(0, throttle.tryAcquire("b", "10.0.0.2"));
+        assertTrue(throttle.tryAcquire("a", "10.0.0.2") > 0);
+        assertEquals(2, throttle.getTrackedUsernames());
+
+        // b is now the least recently used, so it makes room for c, and a stays limited
+        assertEquals(0, throttle.tryAcquire("c", "10.0.0.3"));
+        assertTrue(throttle.tryAcquire("a", "10.0.0.3") > 0);
+        assertEquals(2, throttle.getTrackedUsernames());
+        assertEquals(2, throttle.getTrackedAddresses());
+        assertEquals(2, throttle.getRejectedByUsername());
+    }
+
+    /**
+     * Tests that the client's address is taken from X-Forwarded-For only when the request comes from a trusted proxy.
+     */
+    @Test
+    public void testClientAddress() {
+        LoginThrottle throttle = newThrottle(100);
+        assertEquals("10.1.1.1", throttle.clientAddress("127.0.0.1", "10.1.1.1"));
+        assertEquals("10.1.1.1", throttle.clientAddress("127.0.0.1", "192.168.0.1, 10.1.1.1"));
+        assertEquals("127.0.0.1", throttle.clientAddress("127.0.0.1", null));
+        assertEquals("10.9.9.9", throttle.clientAddress("10.9.9.9", "10.1.1.1"));
+    }
+
+    private LoginThrottle newThrottle(int maxKeys) {
+        return new LoginThrottle(new Limit(3, 6), new Limit(5, 60), new Limit(8, 600), maxKeys,
+                Collections.singletonList("127.0.0.1"), now::get);
+    }
+}
@@ -0,0 +1,131 @@
+package proj.concert.service;
+
+import org.junit.*;
+
+import proj.concert.common.dto.BookingDTO;
+import proj.concert.common.dto.BookingRequestDTO;
+import proj.concert.common.dto.SeatDTO;
+import proj.concert.common.types.BookingStatus;
+import proj.concert.service.archive.PerformanceArchiver;
+import proj.concert.service.auth.UserPrincipal;
+import proj.concert.service.jaxrs.TokenSecurityContext;
+import proj.concert.service.repository.ArchiveRepository;
+import proj.concert.service.repository.SeatRepository;
+import proj.concert.service.services.ConcertResource;
+import proj.concert.service.services.EntityManagerScope;
+import proj.concert.service.services.PersistenceManager;
+import proj.concert.service.util.ConcertUtils;
+import proj.concert.service.util.TheatreLayout;
+
+import javax.persistence.EntityManager;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that archiving moves past performances out of the live tables, and that archived bookings stay readable.
+ */
+public class PerformanceArchiverTest {
+
+    // Concert 2 plays on the past date, and concert 1 on the later date, which stays live
+    private static final LocalDateTime PAST = LocalDateTime.of(2019, 9, 12, 20, 0);
+    private static final LocalDateTime FUTURE = LocalDateTime.of(2020, 2, 15, 20, 0);
+    private static final SecurityContext AUTH = new TokenSecurityContext(new UserPrincipal(1, "testuser"), false);
+
+    @Before
+    public void setUp() {
+        PersistenceManager.instance().reset();
+        ConcertUtils.initConcerts();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        PersistenceManager.instance().reset();
+    }
+
+    /**
+     * Tests that only performances before the cutoff are archived, and that they aren't seated again.
+     */
+    @Test
+    public void testArchiveMovesPastPerformances() {
+        ConcertResource resource = new ConcertResource();
+        book(resource, 2, PAST, "A1", "A2");
+        book(resource, 1, FUTURE, "A1");
+
+        long before = countSeats(null);
+        assertTrue(PerformanceArchiver.instance().archiveBefore(PAST.plusDays(1)) > 0);
+        assertEquals(0, PerformanceArchiver.instance().archiveBefore(PAST.plusDays(1)));
+
+        assertEquals(0, countSeats(PAST));
+        assertEquals(TheatreLayout.NUM_SEATS_IN_THEATRE, countSeats(FUTURE));
+        assertTrue(countSeats(null) < before);
+
+        ConcertUtils.initConcerts();
+        assertEquals(0, countSeats(PAST));
+        EntityManager em = PersistenceManager.instance().createReadOnlyEntityManager();
+        try {
+            assertTrue(new ArchiveRepository(em).findArchivedDates().contains(PAST));
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Tests that an archived booking can still be retrieved by ID and is listed with the user's bookings, and is
+     * still refused to other users.
+     */
+    @Test
+    public void testArchivedBookingReadable() throws IOException {
+        ConcertResource resource = new ConcertResource();
+        long pastId = book(resource, 2, PAST, "B1", "B2");
+        book(resource, 1, FUTURE, "C3");
+        PerformanceArchiver.instance().archiveBefore(PAST.plusDays(1));
+
+        BookingDTO booking;
+        try (EntityManagerScope scope = EntityManagerScope.open(true)) {
+            Response response = resource.getBooking(pastId, AUTH);
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            booking = (BookingDTO) response.getEntity();
+            assertEquals(Response.Status.FORBIDDEN.getStatusCode(),
+                    resource.getBooking(pastId, new TokenSecurityContext(new UserPrincipal(2, "testuser2"), false)).getStatus());
+        }
+        assertEquals(PAST, booking.getDate());
+        assertEquals(Arrays.asList("B1", "B2"),
+                booking.getSeats().stream().map(SeatDTO::getLabel).sorted().collect(Collectors.toList()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) resource.getAllBookings(AUTH).getEntity()).write(out);
+        String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(json.contains("B1") && json.contains("C3"));
+    }
+
+    private static long book(ConcertResource resource, long concertId, LocalDateTime date, String... labels) {
+        try (EntityManagerScope scope = EntityManagerScope.open(false)) {
+            Response response = resource.attemptBooking(
+                    new BookingRequestDTO(concertId, date, Arrays.asList(labels)), AUTH);
+            assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+            String location = response.getLocation().toString();
+            return Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+        }
+    }
+
+    private static long countSeats(LocalDateTime date) {
+        EntityManager em = PersistenceManager.instance().createReadOnlyEntityManager();
+        try {
+            if (date == null) {
+                return em.createQuery("SELECT COUNT(s) FROM Seat s", Long.class).getSingleResult();
+            }
+            return new SeatRepository(em).count(date, BookingStatus.Any);
+        } finally {
+            em.close();
+        }
+    }
+}
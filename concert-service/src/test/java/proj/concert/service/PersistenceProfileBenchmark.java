@@ -0,0 +1,136 @@
+package proj.concert.service;
+
+import org.h2.tools.Server;
+import org.junit.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import proj.concert.common.dto.BookingRequestDTO;
+import proj.concert.service.auth.UserPrincipal;
+import proj.concert.service.cache.CatalogResponseCache;
+import proj.concert.service.datasource.PersistenceProfile;
+import proj.concert.service.jaxrs.TokenSecurityContext;
+import proj.concert.service.services.ConcertResource;
+import proj.concert.service.services.EntityManagerScope;
+import proj.concert.service.services.PersistenceManager;
+import proj.concert.service.util.ConcertUtils;
+import proj.concert.service.util.TheatreLayout;
+
+import javax.persistence.EntityManager;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares booking throughput (single-seat bookings per second through POST /bookings) across the
+ * {@link PersistenceProfile}s. The file profile uses a temporary directory, and the server profile an H2 TCP server
+ * started in this JVM, so the network cost is only that of the loopback interface.
+ * <p>
+ * Benchmarks are excluded from the normal build. Run with:
+ * <code>mvn -pl concert-service test -Dtest=PersistenceProfileBenchmark</code>
+ */
+public class PersistenceProfileBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistenceProfileBenchmark.class);
+
+    private static final int WARMUP_BOOKINGS = 100;
+    private static final int BOOKINGS = 500;
+    private static final String SERVER_PORT = "9093";
+
+    private static Path directory;
+    private static Server server;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        directory = Files.createTempDirectory("concert-profiles");
+        server = Server.createTcpServer("-tcpPort", SERVER_PORT, "-baseDir", directory.resolve("server").toString(),
+                "-ifNotExists").start();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        System.clearProperty(PersistenceProfile.PROFILE_PROPERTY);
+        System.clearProperty(PersistenceProfile.DIRECTORY_PROPERTY);
+        System.clearProperty(PersistenceProfile.SERVER_PROPERTY);
+        PersistenceManager.instance().reset();
+        CatalogResponseCache.instance().invalidate();
+        server.stop();
+    }
+
+    @Test
+    public void benchmarkBookings() {
+        System.setProperty(PersistenceProfile.DIRECTORY_PROPERTY, directory.resolve("file").toString());
+        System.setProperty(PersistenceProfile.SERVER_PROPERTY, "localhost:" + SERVER_PORT);
+
+        // The first profile would otherwise be measured before the booking path is compiled
+        run(PersistenceProfile.MEMORY);
+
+        for (PersistenceProfile profile : PersistenceProfile.values()) {
+            double throughput = run(profile);
+            LOGGER.info(String.format("%-8s %8.1f bookings/s", profile, throughput));
+            assertTrue(throughput > 0);
+        }
+    }
+
+    private static double run(PersistenceProfile profile) {
+        System.setProperty(PersistenceProfile.PROFILE_PROPERTY, profile.name().toLowerCase());
+        PersistenceManager.instance().reset();
+        ConcertUtils.initConcerts();
+
+        List<BookingRequestDTO> requests = bookingRequests();
+        assertTrue(requests.size() >= WARMUP_BOOKINGS + BOOKINGS);
+
+        ConcertResource resource = new ConcertResource();
+        SecurityContext user = new TokenSecurityContext(new UserPrincipal(1, "testuser"), false);
+        for (int i = 0; i < WARMUP_BOOKINGS; i++) {
+            book(resource, requests.get(i), user);
+        }
+
+        long start = System.nanoTime();
+        for (int i = WARMUP_BOOKINGS; i < WARMUP_BOOKINGS + BOOKINGS; i++) {
+            book(resource, requests.get(i), user);
+        }
+        long elapsed = System.nanoTime() - start;
+        return BOOKINGS / (elapsed / 1_000_000_000.0);
+    }
+
+    private static void book(ConcertResource resource, BookingRequestDTO request, SecurityContext user) {
+        try (EntityManagerScope scope = EntityManagerScope.open(false)) {
+            Response response = resource.attemptBooking(request, user);
+            assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+        }
+    }
+
+    /**
+     * Returns a request for every seat of every concert date in the catalog, one seat per request.
+     */
+    private static List<BookingRequestDTO> bookingRequests() {
+        List<Object[]> dates;
+        EntityManager em = PersistenceManager.instance().createReadOnlyEntityManager();
+        try {
+            dates = em.createQuery("SELECT c.id, d FROM Concert c JOIN c.dates d ORDER BY c.id, d", Object[].class)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+
+        List<BookingRequestDTO> requests = new ArrayList<>();
+        for (int row = 0; row < TheatreLayout.NUM_ROWS; row++) {
+            for (int seat = 1; seat <= TheatreLayout.NUM_SEATS_PER_ROW; seat++) {
+                String label = "" + (char) ('A' + row) + seat;
+                for (Object[] date : dates) {
+                    requests.add(new BookingRequestDTO((Long) date[0], (LocalDateTime) date[1],
+                            Collections.singletonList(label)));
+                }
+            }
+        }
+        return requests;
+    }
+}
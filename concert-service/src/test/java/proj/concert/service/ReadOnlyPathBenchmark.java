@@ -0,0 +1,203 @@
+package proj.concert.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import proj.concert.common.dto.ConcertDTO;
+import proj.concert.common.dto.SeatDTO;
+import proj.concert.common.types.Genre;
+import proj.concert.service.cache.CatalogResponseCache;
+import proj.concert.service.domain.Concert;
+import proj.concert.service.domain.Performer;
+import proj.concert.service.domain.Seat;
+import proj.concert.service.jaxrs.CatalogQueryParams;
+import proj.concert.service.services.ConcertResource;
+import proj.concert.service.services.EntityManagerScope;
+import proj.concert.service.services.PersistenceManager;
+import proj.concert.service.util.ConcertUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static proj.concert.service.mapper.ConcertMapper.toConcertDto;
+
+/**
+ * Compares the memory allocated per request by GET /concerts and GET /seats/{date} against the previous strategy of
+ * loading managed entities through a read-write EntityManager, mapping them to a list of DTOs and serializing that.
+ * <p>
+ * Benchmarks are excluded from the normal build. Run with:
+ * <code>mvn -pl concert-service test -Dtest=ReadOnlyPathBenchmark</code>
+ */
+public class ReadOnlyPathBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadOnlyPathBenchmark.class);
+
+    private static final int CONCERTS = 100;
+    private static final int PERFORMERS_PER_CONCERT = 5;
+    private static final int DATES_PER_CONCERT = 20;
+    private static final LocalDateTime SEAT_DATE = LocalDateTime.of(2020, 2, 15, 20, 0);
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 500;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // The sink is shared between requests, so must not be closed after each one
+    private final ObjectMapper mapper = new ObjectMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final ConcertResource resource = new ConcertResource();
+
+    @BeforeClass
+    public static void createCatalog() {
+        PersistenceManager.instance().reset();
+        ConcertUtils.initConcerts();
+
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            long performerId = 1000;
+            for (int i = 0; i < CONCERTS; i++) {
+                Concert concert = new Concert("Synthetic Tour " + i, "concerts/synthetic.jpg", "Synthetic concert " + i);
+                for (int p = 0; p < PERFORMERS_PER_CONCERT; p++) {
+                    Performer performer = new Performer(performerId, "Synthetic Act " + performerId,
+                            "performers/synthetic.jpg", Genre.Pop, "Synthetic performer " + performerId);
+                    performerId++;
+                    em.persist(performer);
+                    concert.getPerformers().add(performer);
+                }
+                for (int d = 0; d < DATES_PER_CONCERT; d++) {
+                    concert.getDates().add(LocalDateTime.of(2021, 1, 1, 20, 0).plusDays(d));
+                }
+                em.persist(concert);
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        PersistenceManager.instance().reset();
+        CatalogResponseCache.instance().invalidate();
+    }
+
+    @Test
+    public void benchmarkGetAllConcerts() throws Exception {
+        CatalogQueryParams params = new CatalogQueryParams(null, CatalogQueryParams.MAX_LIMIT);
+
+        // Both paths go through the response cache and second-level cache, emptied before every request
+        Result readWrite = run(() -> {
+            resetCaches();
+            CatalogResponseCache.instance().get("concerts", () -> {
+                EntityManager em = PersistenceManager.instance().createEntityManager();
+                try {
+                    TypedQuery<Concert> query = em.createQuery(
+                            "SELECT DISTINCT c FROM Concert c LEFT JOIN FETCH c.performers ORDER BY c.id",
+                            Concert.class);
+                    List<Concert> concerts = query.setMaxResults(params.getLimit()).getResultList();
+                    em.createQuery("SELECT DISTINCT c FROM Concert c LEFT JOIN FETCH c.dates", Concert.class)
+                            .getResultList();
+                    List<ConcertDTO> dtos = new ArrayList<>();
+                    for (Concert c : concerts) {
+                        dtos.add(toConcertDto(c));
+                    }
+                    return dtos;
+                } finally {
+                    em.close();
+                }
+            });
+        });
+
+        Result readOnly = run(() -> {
+            resetCaches();
+            try (EntityManagerScope scope = EntityManagerScope.open(true)) {
+                resource.getAllConcerts(params, null, null);
+            }
+        });
+
+        report("/concerts", readWrite, readOnly);
+    }
+
+    @Test
+    public void benchmarkGetSeatsForDate() throws Exception {
+        OutputStream sink = OutputStream.nullOutputStream();
+
+        Result readWrite = run(() -> {
+            EntityManager em = PersistenceManager.instance().createEntityManager();
+            try {
+                TypedQuery<Seat> query = em.createQuery("SELECT s FROM Seat s WHERE s.date = :date", Seat.class);
+                query.setParameter("date", SEAT_DATE);
+                List<SeatDTO> dtos = new ArrayList<>();
+                for (Seat seat : query.getResultList()) {
+                    dtos.add(new SeatDTO(seat.getLabel(), seat.getCost()));
+                }
+                mapper.writeValue(sink, dtos);
+            } finally {
+                em.close();
+            }
+        });
+
+        Result readOnly = run(() -> {
+            StreamingOutput body = (StreamingOutput) resource
+                    .getSeatsForDate(SEAT_DATE.toString(), "Any", null).getEntity();
+            body.write(sink);
+        });
+
+        report("/seats/{date}", readWrite, readOnly);
+    }
+
+    private static void resetCaches() {
+        CatalogResponseCache.instance().invalidate();
+        PersistenceManager.instance().evictCatalog();
+    }
+
+    private void report(String name, Result readWrite, Result readOnly) {
+        LOGGER.info(String.format("%-14s read-write: %8.1f KB/request %6.2f ms/request", name,
+                readWrite.bytes / 1024.0, readWrite.millis));
+        LOGGER.info(String.format("%-14s read-only:  %8.1f KB/request %6.2f ms/request", name,
+                readOnly.bytes / 1024.0, readOnly.millis));
+
+        assertTrue(readOnly.bytes < readWrite.bytes);
+    }
+
+    private Result run(Request request) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            request.call();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            request.call();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        return new Result(allocated / ITERATIONS, elapsed / 1_000_000.0 / ITERATIONS);
+    }
+
+    private interface Request {
+        void call() throws Exception;
+    }
+
+    private static class Result {
+        final long bytes;
+        final double millis;
+
+        Result(long bytes, double millis) {
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package proj.concert.service;
+
+import org.junit.*;
+
+import proj.concert.common.dto.AvailabilityDTO;
+import proj.concert.common.dto.PriceBandAvailabilityDTO;
+import proj.concert.common.types.BookingStatus;
+import proj.concert.service.domain.Seat;
+import proj.concert.service.repository.BookingRepository;
+import proj.concert.service.repository.ConcertRepository;
+import proj.concert.service.repository.SeatRepository;
+import proj.concert.service.repository.UserRepository;
+import proj.concert.service.services.PersistenceManager;
+import proj.concert.service.util.ConcertUtils;
+import proj.concert.service.util.TheatreLayout;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the repositories' named queries against the test data in db-init.sql.
+ */
+public class RepositoryTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2020, 2, 15, 20, 0);
+
+    private EntityManager em;
+
+    @BeforeClass
+    public static void setUpDatabase() {
+        PersistenceManager.instance().reset();
+        ConcertUtils.initConcerts();
+    }
+
+    @Before
+    public void setUp() {
+        em = PersistenceManager.instance().createReadOnlyEntityManager();
+    }
+
+    @After
+    public void tearDown() {
+        em.close();
+    }
+
+    /**
+     * Tests that seats are found by label in one query, ignoring labels that don't exist, and counted by status.
+     */
+    @Test
+    public void testSeatQueries() {
+        SeatRepository seats = new SeatRepository(em);
+
+        List<Seat> found = seats.findByDateAndLabels(DATE, Arrays.asList("A1", "B2", "Z99"));
+        assertEquals(2, found.size());
+
+        assertEquals(TheatreLayout.NUM_SEATS_IN_THEATRE, seats.count(DATE, BookingStatus.Any));
+        assertEquals(TheatreLayout.NUM_SEATS_IN_THEATRE, seats.count(DATE, BookingStatus.Unbooked));
+        assertEquals(0, seats.count(DATE, BookingStatus.Booked));
+        assertTrue(seats.findAllDates().contains(DATE));
+    }
+
+    /**
+     * Tests that availability is counted by date and price band, for several dates in one query.
+     */
+    @Test
+    public void testAvailability() {
+        LocalDateTime bookedDate = LocalDateTime.of(2019, 9, 12, 20, 0);
+        EntityManager writer = PersistenceManager.instance().createEntityManager();
+        try {
+            writer.getTransaction().begin();
+            for (Seat seat : new SeatRepository(writer).findByDateAndLabels(bookedDate, Arrays.asList("A1", "J12"))) {
+                seat.setBookingStatus(true);
+            }
+            writer.getTransaction().commit();
+        } finally {
+            writer.close();
+        }
+
+        List<AvailabilityDTO> availability = new SeatRepository(em).findAvailability(
+                Arrays.asList(DATE, bookedDate, LocalDateTime.of(2000, 1, 1, 0, 0)));
+
+        assertEquals(2, availability.size());
+        AvailabilityDTO booked = availability.get(0);
+        assertEquals(bookedDate, booked.getDate());
+        assertEquals(TheatreLayout.NUM_SEATS_IN_THEATRE, booked.getTotal());
+        assertEquals(2, booked.getBooked());
+        assertEquals(TheatreLayout.NUM_SEATS_IN_THEATRE - 2, booked.getRemaining());
+        assertEquals(TheatreLayout.PRICE_BANDS.length, booked.getPriceBands().size());
+        for (int i = 0; i < TheatreLayout.PRICE_BANDS.length; i++) {
+            PriceBandAvailabilityDTO band = booked.getPriceBands().get(i);
+            assertEquals(TheatreLayout.PRICE_BANDS[i].name, band.getName());
+            assertEquals(TheatreLayout.PRICE_BANDS[i].numRows * TheatreLayout.NUM_SEATS_PER_ROW, band.getTotal());
+            assertEquals(i == 1 ? 0 : 1, band.getBooked());
+        }
+
+        assertEquals(DATE, availability.get(1).getDate());
+        assertEquals(0, availability.get(1).getBooked());
+    }
+
+    /**
+     * Tests that lookups which find nothing return null (or false) rather than throwing.
+     */
+    @Test
+    public void testMissingResultsAreNull() {
+        assertNull(new UserRepository(em).findByUsername("nobody"));
+        assertNotNull(new UserRepository(em).findByUsername("testuser"));
+        assertNull(new ConcertRepository(em).find(Long.MAX_VALUE));
+        assertFalse(new BookingRepository(em).hasAny());
+    }
+}
@@ -0,0 +1,97 @@
+package proj.concert.service;
+
+import org.hibernate.Session;
+import org.junit.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import proj.concert.service.domain.Seat;
+import proj.concert.service.services.PersistenceManager;
+import proj.concert.service.util.ConcertUtils;
+import proj.concert.service.util.TheatreLayout;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares seeding the seats for 1,000 performances with {@link ConcertUtils#createSeats} against the previous
+ * strategy of persisting the seats one at a time, one date per transaction, on a single thread.
+ * <p>
+ * Benchmarks are excluded from the normal build. Run with:
+ * <code>mvn -pl concert-service test -Dtest=SeatSeedingBenchmark</code>
+ */
+public class SeatSeedingBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeatSeedingBenchmark.class);
+
+    private static final int PERFORMANCES = 1000;
+    private static final long MAX_SEEDING_MILLIS = 30_000;
+
+    @After
+    public void tearDown() {
+        PersistenceManager.instance().reset();
+    }
+
+    @Test
+    public void benchmarkCreateSeats() {
+        PersistenceManager.instance().reset();
+        long unbatched = time(() -> createSeatsOneAtATime(dates(2030)));
+
+        PersistenceManager.instance().reset();
+        long batched = time(() -> ConcertUtils.createSeats(dates(2030)));
+
+        int expected = PERFORMANCES * TheatreLayout.NUM_SEATS_IN_THEATRE;
+        LOGGER.info(String.format("one at a time: %6d ms for %d seats", unbatched, expected));
+        LOGGER.info(String.format("batched:       %6d ms for %d seats", batched, expected));
+
+        assertEquals(expected, countSeats(dates(2030).get(0)) * PERFORMANCES);
+        assertTrue(batched < MAX_SEEDING_MILLIS);
+        assertTrue(batched < unbatched);
+    }
+
+    private static List<LocalDateTime> dates(int year) {
+        List<LocalDateTime> dates = new ArrayList<>();
+        for (int i = 0; i < PERFORMANCES; i++) {
+            dates.add(LocalDateTime.of(year, 1, 1, 20, 0).plusHours(i));
+        }
+        return dates;
+    }
+
+    private static void createSeatsOneAtATime(List<LocalDateTime> dates) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            // Without batching, each INSERT is sent on its own, as it was with identity IDs
+            em.unwrap(Session.class).setJdbcBatchSize(1);
+            for (LocalDateTime date : dates) {
+                em.getTransaction().begin();
+                for (Seat s : TheatreLayout.createSeatsFor(date)) {
+                    em.persist(s);
+                }
+                em.getTransaction().commit();
+                em.clear();
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long countSeats(LocalDateTime date) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            return em.createQuery("SELECT COUNT(s) FROM Seat s WHERE s.date = :date", Long.class)
+                    .setParameter("date", date).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long time(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,88 @@
+package proj.concert.service;
+
+import org.junit.*;
+
+import proj.concert.service.journal.SeatSnapshot;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that seat snapshots are written and read back intact, and that damaged ones are ignored.
+ */
+public class SeatSnapshotTest {
+
+    private static final LocalDateTime DATE_1 = LocalDateTime.of(2020, 2, 15, 20, 0);
+    private static final LocalDateTime DATE_2 = LocalDateTime.of(2020, 3, 20, 20, 0);
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        SeatSnapshot.delete(directory);
+        Files.delete(directory);
+    }
+
+    /**
+     * Tests that a snapshot reads back as written, and that containment compares the booked seats.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        Map<LocalDateTime, BitSet> booked = new HashMap<>();
+        booked.put(DATE_1, seats(0, 63, 64, 119));
+        booked.put(DATE_2, seats(5));
+        Map<LocalDateTime, Long> versions = new HashMap<>();
+        versions.put(DATE_1, 4L);
+        versions.put(DATE_2, 1L);
+
+        new SeatSnapshot(42, booked, versions).write(directory);
+        SeatSnapshot snapshot = SeatSnapshot.read(directory);
+
+        assertEquals(42, snapshot.getSequence());
+        assertEquals(booked, snapshot.getBookedSeats());
+        assertEquals(versions, snapshot.getVersions());
+
+        assertTrue(snapshot.isContainedIn(booked));
+        Map<LocalDateTime, BitSet> more = new HashMap<>(booked);
+        more.put(DATE_2, seats(5, 6));
+        assertTrue(snapshot.isContainedIn(more));
+        assertFalse(snapshot.isContainedIn(Collections.singletonMap(DATE_1, booked.get(DATE_1))));
+    }
+
+    /**
+     * Tests that a missing or damaged snapshot reads as none.
+     */
+    @Test
+    public void testDamagedSnapshotIgnored() throws IOException {
+        assertNull(SeatSnapshot.read(directory));
+
+        new SeatSnapshot(7, Collections.singletonMap(DATE_1, seats(1)), Collections.emptyMap()).write(directory);
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("seats.snapshot").toFile(), "rw")) {
+            file.seek(file.length() - 1);
+            file.write(0xFF);
+        }
+        assertNull(SeatSnapshot.read(directory));
+    }
+
+    private static BitSet seats(int... indexes) {
+        BitSet seats = new BitSet();
+        for (int index : indexes) {
+            seats.set(index);
+        }
+        return seats;
+    }
+}